@@ -9,24 +9,36 @@ package gov.sandia.watchr;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
 import gov.sandia.watchr.db.impl.FileBasedDatabase;
+import gov.sandia.watchr.graph.GraphRenderCache;
 import gov.sandia.watchr.graph.library.IHtmlButtonRenderer;
 import gov.sandia.watchr.graph.library.IHtmlGraphRenderer;
 import gov.sandia.watchr.graph.library.impl.PlotlyGraphRenderer;
 import gov.sandia.watchr.graph.options.ButtonType;
 import gov.sandia.watchr.graph.options.JenkinsButtonBar;
 import gov.sandia.watchr.impl.WatchrJenkinsLogger;
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.DatabaseIndex;
+import gov.sandia.watchr.model.DatabaseJournal;
+import gov.sandia.watchr.model.DatabaseWriteLock;
 import gov.sandia.watchr.model.JenkinsConfigContext;
 import gov.sandia.watchr.log.ILogger;
 import hudson.model.Job;
 import hudson.model.Run;
+import jenkins.model.Jenkins;
 
 public class WatchrJenkinsApp {
 
@@ -34,16 +46,22 @@ public class WatchrJenkinsApp {
     // FIELDS //
     ////////////
 
+    public static final String DATABASE_DIR = "db";
+
     private static final Set<JenkinsConfigContext> configContexts;
-    private static final Map<Job<?,?>, WatchrCoreApp> coreAppCache;
+    private static final Logger LOGGER = Logger.getLogger(WatchrJenkinsApp.class.getName());
+
+    // Keyed by each job's full name.
+    private static final Map<String, WatchrCoreApp> coreAppCache;
 
     //////////
     // INIT //
     //////////
 
     static {
-        configContexts = new HashSet<>();
-        coreAppCache = new HashMap<>();
+        // Builds of different jobs, and page requests, use these concurrently.
+        configContexts = ConcurrentHashMap.newKeySet();
+        coreAppCache = new ConcurrentHashMap<>();
     }
 
     /////////////////
@@ -56,17 +74,172 @@ public class WatchrJenkinsApp {
     // DATABASE //
     //////////////
 
+    /**
+     * Makes sure the job's database is connected and current. The database is
+     * only read from disk the first time, or after {@link DatabaseCache}
+     * has been told that the copy in memory is out of date.
+     * @param job The job.
+     */
     public static void loadDatabase(Job<?,?> job) {
-        String databaseName = job.getName();
-        File dbRootDir = job.getRootDir();
-        File dbDir = new File(dbRootDir, "db");
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        try {
+            if(!DatabaseCache.needsLoad(job)) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
 
-        ILogger logger = useAndGetLoggerForJob(job);
-        logger.logInfo("Loading database " + databaseName + "... (watchr-jenkins)");
-        
-        WatchrCoreApp app = getAppForJob(job);
-        app.connectDatabase(databaseName, FileBasedDatabase.class, new Object[]{ dbDir });
-        setGraphRenderer(job);
+            String databaseName = getDatabaseName(job);
+            File dbDir = getDatabaseDir(job);
+
+            ILogger logger = getLoggerForJob(job);
+            logger.logInfo("Loading database " + databaseName + "... (watchr-jenkins)");
+
+            WatchrCoreApp app = getAppForJob(job);
+            // The core app is shared, so its logger is only changed under the lock.
+            app.setLogger(logger);
+            DatabaseJournal journal = DatabaseJournal.forJob(job);
+
+            // The database is only reconnected when the copy in memory was never
+            // loaded or cannot be trusted, so it is not saved first. Instead, any
+            // journaled changes are replayed onto the database read from disk.
+            app.connectDatabase(databaseName, FileBasedDatabase.class, new Object[]{ dbDir });
+            boolean recovered = journal.recover(logger);
+            if(recovered) {
+                // The saved index predates the replayed changes.
+                DatabaseIndex.record(job, DatabaseIndex.of(job, app, databaseName));
+            }
+            setGraphRenderer(job);
+            DatabaseCache.markLoaded(job, getDirectorySize(dbDir), System.currentTimeMillis() - startTime);
+            if(recovered) {
+                // Only a database marked current can be checkpointed.
+                journal.checkpoint(logger);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        evictToMemoryBudget(job);
+    }
+
+    /**
+     * @param job The job.
+     * @return The name the job's database is connected, read and saved under.
+     */
+    public static String getDatabaseName(Job<?,?> job) {
+        return job.getName();
+    }
+
+    public static File getDatabaseDir(Job<?,?> job) {
+        return new File(job.getRootDir(), DATABASE_DIR);
+    }
+
+    /**
+     * Drops the job's database from memory, saving any journaled changes
+     * first. The next use of the database reads it from disk again.
+     * @param job The job.
+     * @return False if the database has changes that are still waiting to be
+     * saved, in which case it is left loaded.
+     */
+    public static boolean unloadDatabase(Job<?,?> job) {
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        return unloadDatabaseWhileLocked(job, writeLock);
+    }
+
+    private static boolean unloadDatabaseWhileLocked(Job<?,?> job, DatabaseWriteLock writeLock) {
+        try {
+            ILogger logger = getLoggerForJob(job);
+            DatabaseJournal.forJob(job).checkpoint(logger);
+            if(writeLock.hasUnsavedChanges()) {
+                return false;
+            }
+
+            logger.logInfo("Unloading database " + job.getName() + "... (watchr-jenkins)");
+            coreAppCache.remove(job.getFullName());
+            configContexts.removeIf(context -> context.getJob().equals(job));
+            DatabaseCache.markUnloaded(job);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drops everything held in memory for a job that has been deleted, renamed
+     * or moved, without saving it. Anything saved on disk moves or is deleted
+     * along with the job's directory.
+     * @param job The job.
+     * @param oldFullName The job's full name before it was deleted, renamed or moved.
+     */
+    public static void forgetJob(Job<?,?> job, String oldFullName) {
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forget(oldFullName);
+        if(writeLock != null) {
+            // Waits for any change or save still in progress under the old name.
+            writeLock.lock();
+        }
+        try {
+            if(writeLock != null && writeLock.hasUnsavedChanges()) {
+                // The database in memory belongs to the old location, so it cannot
+                // be saved. Journaled changes are replayed from the job's new
+                // location, and builds still waiting to save theirs fail.
+                getLoggerForJob(job).logWarning(
+                    "Dropping unsaved changes to the database of " + oldFullName + ", which was deleted, renamed or moved");
+            }
+            coreAppCache.remove(oldFullName);
+            configContexts.removeIf(context -> context.getJob().equals(job));
+            DatabaseJournal.forget(oldFullName);
+            DatabaseCache.forget(oldFullName);
+            DatabaseIndex.forget(oldFullName);
+            GraphRenderCache.forget(oldFullName);
+        } finally {
+            if(writeLock != null) {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Unloads the least recently used databases until the databases left in
+     * memory fit within the configured budget. A database that is in use, or
+     * that still has changes waiting to be saved, is passed over, as is the
+     * database that was just loaded.
+     * @param loadedJob The job whose database was just loaded.
+     */
+    private static void evictToMemoryBudget(Job<?,?> loadedJob) {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        PerformanceRecorder.DescriptorImpl descriptor =
+            jenkins != null ? jenkins.getDescriptorByType(PerformanceRecorder.DescriptorImpl.class) : null;
+        if(descriptor == null || descriptor.getDatabaseCacheMegabytes() <= 0) {
+            return;
+        }
+
+        long budgetBytes = descriptor.getDatabaseCacheMegabytes() * 1024L * 1024L;
+        for(String jobFullName : DatabaseCache.getLeastRecentlyUsedJobNames()) {
+            if(DatabaseCache.getEstimatedBytes() <= budgetBytes) {
+                return;
+            }
+            Job<?,?> job = jenkins.getItemByFullName(jobFullName, Job.class);
+            if(job == null || job.equals(loadedJob)) {
+                continue;
+            }
+            // Never wait on another job's lock, since the caller may be holding its own.
+            DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+            if(writeLock.tryLock() && unloadDatabaseWhileLocked(job, writeLock)) {
+                DatabaseCache.recordEviction();
+                LOGGER.log(Level.FINE, "Evicted database {0} to stay within the Watchr database cache budget (watchr-jenkins)", jobFullName);
+            }
+        }
+    }
+
+    private static long getDirectorySize(File dir) {
+        if(!dir.isDirectory()) {
+            return 0;
+        }
+        try(Stream<Path> paths = Files.walk(dir.toPath())) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        } catch(IOException | UncheckedIOException e) {
+            return 0;
+        }
     }
 
     ////////////////////
@@ -74,7 +247,7 @@ public class WatchrJenkinsApp {
     ////////////////////
 
     public static JenkinsConfigContext getConfigContextOrDefault(Job<?,?> job) {
-        ILogger logger = useAndGetLoggerForJob(job);
+        ILogger logger = getLoggerForJob(job);
         logger.logInfo("Checking context map for job " + job.getName() + "... (watchr-jenkins)");
 
         JenkinsConfigContext context = null;
@@ -99,7 +272,7 @@ public class WatchrJenkinsApp {
     ////////////////////
 
     public static WatchrCoreApp getAppForJob(Job<?,?> job) {
-        return coreAppCache.computeIfAbsent(job, k -> new WatchrCoreApp());
+        return coreAppCache.computeIfAbsent(job.getFullName(), k -> new WatchrCoreApp());
     }
 
     //////////////////////
@@ -109,7 +282,7 @@ public class WatchrJenkinsApp {
     private static void setGraphRenderer(Job<?,?> job) {
         WatchrCoreApp app = getAppForJob(job);
         
-        String databaseName = job.getName();
+        String databaseName = getDatabaseName(job);
         IHtmlGraphRenderer graphRenderer = app.getGraphRenderer(PlotlyGraphRenderer.class, databaseName);
         IHtmlButtonRenderer buttonRenderer = graphRenderer.getButtonRenderer();
 
@@ -169,13 +342,19 @@ public class WatchrJenkinsApp {
         }
     } 
     
-    public static ILogger useAndGetLoggerForJob(Job<?,?> job) {
-        WatchrCoreApp app = getAppForJob(job);
+    /**
+     * Returns a logger of its own for one operation on a job, writing to the
+     * log of the job's last build. The logger of the job's core app is left
+     * alone, since the core app is shared by every operation on the job, and
+     * is only changed by one that holds the job's {@link DatabaseWriteLock}.
+     * @param job The job.
+     * @return The logger, or the core app's logger if the job has no builds.
+     */
+    public static ILogger getLoggerForJob(Job<?,?> job) {
         File logFile = WatchrJenkinsApp.getLogForLastBuild(job);
         if(logFile != null) {
-            ILogger jenkinsLogger = new WatchrJenkinsLogger(logFile);
-            app.setLogger(jenkinsLogger);
+            return new WatchrJenkinsLogger(logFile);
         }
-        return app.getLogger();
+        return getAppForJob(job).getLogger();
     }
 }
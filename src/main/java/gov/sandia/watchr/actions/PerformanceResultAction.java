@@ -13,8 +13,8 @@ import java.util.List;
 
 import org.kohsuke.stapler.StaplerProxy;
 
-import gov.sandia.watchr.WatchrJenkinsApp;
-import gov.sandia.watchr.model.JenkinsConfigContext;
+import gov.sandia.watchr.model.DatabaseIndex;
+import gov.sandia.watchr.model.PerformanceResultSummary;
 import hudson.model.Action;
 import hudson.model.Job;
 import hudson.model.Run;
@@ -37,6 +37,12 @@ public class PerformanceResultAction
     
     public final List<Action> actions = new ArrayList<>();
     private Job<?,?> job;
+
+    /**
+     * Recorded when this build's reports are ingested. Builds recorded before
+     * summaries existed, or whose reports were never ingested, have none.
+     */
+    private PerformanceResultSummary summary;
     
     /////////////////
     // CONSTRUCTOR //
@@ -49,6 +55,22 @@ public class PerformanceResultAction
         }
     }
     
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public PerformanceResultSummary getSummary() {
+        return summary;
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public void setSummary(PerformanceResultSummary summary) {
+        this.summary = summary;
+    }
+
     //////////////
     // OVERRIDE //
     //////////////
@@ -60,18 +82,20 @@ public class PerformanceResultAction
         
     @Override
     public int getTotalCount() {
-        if(job != null) {
-            JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
-            return context.getNumberOfPlots();
+        if(summary != null) {
+            return summary.getTotalCount();
+        } else if(job != null) {
+            return DatabaseIndex.forJob(job).getPlotCount();
         }
         return 1;
     }
     
     @Override
     public int getFailCount() {
-        if(job != null) {
-            JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
-            return context.getNumberOfFailedPlots();
+        if(summary != null) {
+            return summary.getFailCount();
+        } else if(job != null) {
+            return DatabaseIndex.forJob(job).getFailedPlotCount();
         }        
     	return 0;
     }
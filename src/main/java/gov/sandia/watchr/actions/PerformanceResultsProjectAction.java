@@ -11,18 +11,33 @@ import hudson.model.Job;
 import hudson.model.ProminentProjectAction;
 import hudson.model.Run;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 import gov.sandia.watchr.WatchrCoreApp;
 import gov.sandia.watchr.WatchrJenkinsApp;
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.GraphDisplayConfig.LeafNodeStrategy;
+import gov.sandia.watchr.graph.GraphRenderCache;
 import gov.sandia.watchr.graph.JenkinsHtmlFragmentGenerator;
+import gov.sandia.watchr.graph.options.JenkinsButtonBar;
 import gov.sandia.watchr.graph.library.GraphOperationMetadata;
 import gov.sandia.watchr.graph.library.GraphOperationResult;
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.DatabaseIndex;
+import gov.sandia.watchr.model.DatabaseJournal;
+import gov.sandia.watchr.model.DatabaseWriteLock;
+import gov.sandia.watchr.model.GraphViewState;
 import gov.sandia.watchr.model.JenkinsConfigContext;
+import gov.sandia.watchr.util.HttpHeaderUtil;
 import gov.sandia.watchr.util.StaplerRequestUtil;
 import gov.sandia.watchr.log.ILogger;
 
@@ -47,7 +62,6 @@ public final class PerformanceResultsProjectAction implements ProminentProjectAc
 
     public PerformanceResultsProjectAction(Job<?, ?> job) {
         this.job = job;
-        WatchrJenkinsApp.useAndGetLoggerForJob(job);
     }
 
     //////////////
@@ -81,9 +95,7 @@ public final class PerformanceResultsProjectAction implements ProminentProjectAc
      * the HtmlGenerator object.
      */
     public void createHtmlGenerator() {        
-        updateGraphConfigurationOnPageLoad();
-
-        ILogger logger = WatchrJenkinsApp.useAndGetLoggerForJob(job);
+        ILogger logger = WatchrJenkinsApp.getLoggerForJob(job);
         logger.logInfo(StaplerRequestUtil.echoCurrentStaplerRequest());
 
         deleteAnyPlotsOnPageLoad();
@@ -100,61 +112,158 @@ public final class PerformanceResultsProjectAction implements ProminentProjectAc
     
     /**
      * Called from the PerformanceResultsProjectAction index.jelly to generate
-     * all of the HTML for Watchr graphs.
-     * @return A String representing the HTML for the graph header menu.
+     * all of the HTML for Watchr graphs.  The HTML is returned in chunks,
+     * the menu bar first, which the page writes out one at a time, so that
+     * the graphs are decompressed from the render cache as they are sent
+     * rather than joined into one string first.
+     * @return An iterator over consecutive chunks of the page's HTML.
      */
-    public String getHTML() {
-        
-        WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(job);
-        StringBuilder htmlSb = new StringBuilder();
+    public Iterator<String> getHTMLChunks() {
+        ILogger logger = WatchrJenkinsApp.getLoggerForJob(job);
         JenkinsHtmlFragmentGenerator fragmentGenerator = new JenkinsHtmlFragmentGenerator();
 
         try {
-            JenkinsConfigContext configContext = WatchrJenkinsApp.getConfigContextOrDefault(job);
-            GraphDisplayConfig plotConfiguration = configContext.getGraphDisplayConfig();      
-            plotConfiguration.setLeafNodeStrategy(LeafNodeStrategy.TRAVEL_UP_TO_PARENT);
-            String dbName = configContext.getDatabaseName();
+            JenkinsConfigContext configContext = getViewConfigContext();
+            GraphRenderCache.Entry graphs = renderGraphs(configContext, logger);
+            String menuBar = fragmentGenerator.buildMenuBar(configContext, graphs.getNumberOfGraphs());
+            Iterator<String> graphChunks = graphs.htmlChunks();
+            return new Iterator<String>() {
+                private boolean menuBarReturned = false;
 
-            coreApp.getLogger().logInfo(plotConfiguration.toString());
+                @Override
+                public boolean hasNext() {
+                    return !menuBarReturned || graphChunks.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    if(!menuBarReturned) {
+                        menuBarReturned = true;
+                        return menuBar;
+                    }
+                    return graphChunks.next();
+                }
+            };
+        } catch(Exception e) {
+            logger.logError("getHTMLChunks Error:", e);
+            return Collections.emptyIterator();
+        }
+    }
+
+    /**
+     * Serves only the graphs of the Performance Reports page, for the same
+     * request parameters the page takes, so that dashboards that refresh them
+     * can be answered with "304 Not Modified" while nothing has changed. The
+     * Performance Reports page itself does not use this URL; it renders its
+     * graphs inline, where they still come from the render cache.
+     * @param req The request.
+     * @param rsp The response.
+     */
+    public void doGraphs(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        ILogger logger = WatchrJenkinsApp.getLoggerForJob(job);
+        GraphRenderCache.Entry graphs;
+        try {
+            graphs = renderGraphs(getViewConfigContext(), logger);
+        } catch(Exception e) {
+            logger.logError("doGraphs Error:", e);
+            rsp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+
+        boolean gzipped = HttpHeaderUtil.acceptsGzip(req.getHeader("Accept-Encoding"));
+        String etag = graphs.getETag(gzipped);
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Cache-Control", "private, no-cache");
+        rsp.setHeader("Vary", "Accept-Encoding");
+        if(HttpHeaderUtil.matchesETag(req.getHeader("If-None-Match"), etag)) {
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        rsp.setContentType("text/html;charset=UTF-8");
+        if(gzipped) {
+            byte[] gzippedHtml = graphs.getGzippedHtml();
+            rsp.setHeader("Content-Encoding", "gzip");
+            rsp.setContentLength(gzippedHtml.length);
+            rsp.getOutputStream().write(gzippedHtml);
+        } else {
+            graphs.writeHtml(rsp.getWriter());
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
 
-            GraphOperationResult graphResult = coreApp.getGraphHtml(dbName, plotConfiguration, false);
+    /**
+     * Returns the graphs for a viewer's display settings, rendering them only
+     * if they are not already cached for the current state of the database.
+     * The settings must belong to this request alone, since the location of
+     * the rendered graphs is recorded in them.
+     */
+    private GraphRenderCache.Entry renderGraphs(JenkinsConfigContext configContext, ILogger logger) throws IOException {
+        GraphDisplayConfig plotConfiguration = configContext.getGraphDisplayConfig();
+        plotConfiguration.setLeafNodeStrategy(LeafNodeStrategy.TRAVEL_UP_TO_PARENT);
 
-            if(graphResult.getMetadata().keySet().contains(GraphOperationMetadata.PLOT_DB_LOCATION.get())) {
-                plotConfiguration.setLastPlotDbLocation(graphResult.getMetadata().get(GraphOperationMetadata.PLOT_DB_LOCATION.get()));
+        // The key carries the database's generation, so a cached entry is
+        // never served for a database that has changed since it was rendered.
+        GraphRenderCache.Entry graphs = GraphRenderCache.get(GraphRenderCache.getKey(job, plotConfiguration));
+        if(graphs == null) {
+            // The job's write lock is held while rendering, so that the database
+            // cannot be unloaded or changed underneath the graphs.
+            String cacheKey;
+            GraphOperationResult graphResult;
+            DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+            writeLock.lock();
+            try {
+                // The job's context outlives invalidations of its database, so the
+                // database is brought up to date here rather than when the context is made.
+                WatchrJenkinsApp.loadDatabase(job);
+                cacheKey = GraphRenderCache.getKey(job, plotConfiguration);
+                WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(job);
+                coreApp.setLogger(logger);
+                logger.logInfo(plotConfiguration.toString());
+                // The child links on the graphs' buttons carry this view's settings.
+                JenkinsButtonBar.setRenderedViewState(GraphViewState.of(plotConfiguration));
+                graphResult = coreApp.getGraphHtml(configContext.getDatabaseName(), plotConfiguration, false);
+            } finally {
+                JenkinsButtonBar.setRenderedViewState(null);
+                writeLock.unlock();
             }
 
+            String plotDbLocation = graphResult.getMetadata().get(GraphOperationMetadata.PLOT_DB_LOCATION.get());
             int numberOfGraphs = 15; // Arbitrary temp value.
             if(graphResult.getMetadata().keySet().contains(GraphOperationMetadata.NUMBER_OF_GRAPHS.get())) {
                 numberOfGraphs = Integer.parseInt(graphResult.getMetadata().get(GraphOperationMetadata.NUMBER_OF_GRAPHS.get()));
             }
-
-            htmlSb.append(fragmentGenerator.buildMenuBar(configContext, numberOfGraphs));
-            htmlSb.append(graphResult.getHtml());
-        } catch(Exception e) {
-            coreApp.getLogger().logError("getHTML Error:", e);
+            graphs = new GraphRenderCache.Entry(graphResult.getHtml(), plotDbLocation, numberOfGraphs);
+            GraphRenderCache.put(cacheKey, graphs);
         }
 
-        return htmlSb.toString();
+        if(graphs.getPlotDbLocation() != null) {
+            plotConfiguration.setLastPlotDbLocation(graphs.getPlotDbLocation());
+        }
+        return graphs;
     }
 
-    /////////////
-    // PRIVATE //
-    /////////////
+    /**
+     * @return A context showing the view sent with the current request. The
+     * job's own context is only read, so concurrent viewers never see each
+     * other's settings.
+     */
+    private JenkinsConfigContext getViewConfigContext() throws UnsupportedEncodingException {
+        JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
+        // Keeps the job's defaults loaded for the next request.
+        WatchrJenkinsApp.addConfigContext(context);
+        return context.forView(getViewState(context));
+    }
 
-    private void updateGraphConfigurationOnPageLoad() {
-        ILogger logger = WatchrJenkinsApp.useAndGetLoggerForJob(job);
-        try {
-            JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
-            StaplerRequestUtil.updateGraphDisplayConfigFromParameterList(context.getGraphDisplayConfig());
-            WatchrJenkinsApp.addConfigContext(context);
-        } catch(UnsupportedEncodingException e) {
-            logger.logError("Error occurred updating HTML generator settings from the sent parameter list.", e);
-        }
+    private GraphViewState getViewState(JenkinsConfigContext context) throws UnsupportedEncodingException {
+        return StaplerRequestUtil.getGraphViewStateFromParameterList(context.getGraphDisplayConfig());
     }
 
     private void deleteAnyPlotsOnPageLoad() {
-        WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(job);
-        ILogger logger = WatchrJenkinsApp.useAndGetLoggerForJob(job);
+        ILogger logger = WatchrJenkinsApp.getLoggerForJob(job);
         
         try {
             String deletedPlotName     = StaplerRequestUtil.getDeletedPlotNameFromParameterList();
@@ -164,16 +273,52 @@ public final class PerformanceResultsProjectAction implements ProminentProjectAc
                 String logInfoMessage = 
                     "Attempting to delete " + deletedPlotName + " from category " + deletedPlotCategory + " (watchr-jenkins)";
                 logger.logInfo(logInfoMessage);
-                JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
-                coreApp.deletePlotFromDatabase(
-                    context.getDatabaseName(), deletedPlotName, deletedPlotCategory
-                );
-                coreApp.saveDatabase(context.getDatabaseName());
+                deletePlot(job, deletedPlotName, deletedPlotCategory, logger);
             } else {
                 logger.logInfo("Nothing to delete (watchr-jenkins)");
             }
         } catch(UnsupportedEncodingException e) {
             logger.logError("Error occurred deleting plot.", e);
+        } catch(IOException e) {
+            logger.logError("Error occurred saving plot deletion.", e);
+        } catch(InterruptedException e) {
+            logger.logError("Interrupted while saving plot deletion.", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void deletePlot(Job<?,?> job, String plotName, String category, ILogger logger)
+            throws IOException, InterruptedException {
+        String dbName = WatchrJenkinsApp.getDatabaseName(job);
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        boolean journaled;
+        long ticket;
+        DatabaseIndex index;
+        writeLock.lock();
+        try {
+            WatchrJenkinsApp.loadDatabase(job);
+            WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(job);
+            coreApp.deletePlotFromDatabase(dbName, plotName, category);
+            DatabaseCache.recordChange(job);
+            index = DatabaseIndex.of(job, coreApp, dbName);
+            // Recorded before journaling, so that the change is never dropped
+            // from memory unsaved, even if journaling is interrupted.
+            ticket = writeLock.recordChange();
+            // A deletion is always journaled, whether or not ingests are, since
+            // its record is a few bytes while saving rewrites the whole database.
+            try {
+                DatabaseJournal.forJob(job).appendDelete(plotName, category);
+                journaled = true;
+            } catch(IOException e) {
+                logger.logError("Error occurred journaling plot deletion, so the database will be saved instead.", e);
+                journaled = false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if(!journaled) {
+            writeLock.commit(ticket, logger);
         }
+        DatabaseIndex.update(job, index);
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.actions;
+
+import gov.sandia.watchr.graph.GraphRenderCache;
+import gov.sandia.watchr.ingest.IngestionQueue;
+import gov.sandia.watchr.model.DatabaseCache;
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import jenkins.model.Jenkins;
+
+/**
+ * Adds a page to "Manage Jenkins" that shows how many builds are waiting for
+ * their performance reports to be ingested, how far behind the
+ * {@link IngestionQueue} is running, and how often job databases are served
+ * from memory rather than read from disk.
+ */
+@Extension
+public final class WatchrManagementLink extends ManagementLink {
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public String getIconFileName() {
+        return "/plugin/watchr-jenkins/watchr48x48.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Watchr";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "watchr";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Performance report ingestion queue and database cache statistics.";
+    }
+
+    ///////////
+    // JELLY //
+    ///////////
+
+    public IngestionQueue getQueue() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return IngestionQueue.get();
+    }
+
+    public long getDatabaseCacheHits() {
+        return DatabaseCache.getHits();
+    }
+
+    public long getDatabaseCacheMisses() {
+        return DatabaseCache.getMisses();
+    }
+
+    public int getLoadedDatabaseCount() {
+        return DatabaseCache.getLoadedCount();
+    }
+
+    public long getLoadedDatabaseMegabytes() {
+        return DatabaseCache.getEstimatedBytes() / (1024L * 1024L);
+    }
+
+    public long getDatabaseEvictions() {
+        return DatabaseCache.getEvictions();
+    }
+
+    public long getAverageDatabaseLoadMillis() {
+        return DatabaseCache.getAverageLoadMillis();
+    }
+
+    public int getRenderCacheEntryCount() {
+        return GraphRenderCache.getEntryCount();
+    }
+
+    public long getRenderCacheKilobytes() {
+        return GraphRenderCache.getTotalBytes() / 1024L;
+    }
+
+    public long getRenderCacheHits() {
+        return GraphRenderCache.getHits();
+    }
+
+    public long getRenderCacheMisses() {
+        return GraphRenderCache.getMisses();
+    }
+}
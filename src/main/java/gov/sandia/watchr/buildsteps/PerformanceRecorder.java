@@ -7,11 +7,13 @@
 ******************************************************************************/
 package gov.sandia.watchr.buildsteps;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -20,10 +22,15 @@ import gov.sandia.watchr.WatchrJenkinsApp;
 import gov.sandia.watchr.actions.PerformanceResultAction;
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.GraphDisplayConfig.LeafNodeStrategy;
-import gov.sandia.watchr.config.file.IFileReader;
+import gov.sandia.watchr.impl.ReportFilter;
 import gov.sandia.watchr.impl.WatchrJenkinsFileReader;
 import gov.sandia.watchr.impl.WatchrJenkinsLogger;
+import gov.sandia.watchr.ingest.IngestionQueue;
+import gov.sandia.watchr.ingest.IngestionTask;
+import gov.sandia.watchr.ingest.ReportIngester;
 import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.model.DatabaseJournal;
+import gov.sandia.watchr.model.DatabaseWriteLock;
 import gov.sandia.watchr.model.JenkinsConfigContext;
 import gov.sandia.watchr.parse.WatchrParseException;
 import gov.sandia.watchr.util.CommonConstants;
@@ -55,12 +62,24 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
     // FIELDS //
     ////////////
 
+    private static final String REPORT_SNAPSHOT_DIR = "watchrReportSnapshot";
+
     public final String watchrConfigJson;
     public final boolean exportGraphs;
     
     public final String watchrConfigFilepath;
     public final String performanceReportsLocation;
 
+    private IngestionMode ingestionMode;
+    private boolean skipIngestedReports;
+    private boolean asynchronousIngestion;
+
+    private String reportIncludes;
+    private String reportExcludes;
+    private int maxReportFileSizeMb;
+    private int maxReportFileCount;
+    private int reportRetentionDays;
+
     /////////////////
     // CONSTRUCTOR //
     /////////////////
@@ -78,6 +97,93 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
         this.watchrConfigFilepath = removeLeadingSlash(watchrConfigFilepath);
     }
 
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public IngestionMode getIngestionMode() {
+        // Jobs configured before ingestion modes existed will have no value here.
+        return ingestionMode != null ? ingestionMode : IngestionMode.PER_FILE;
+    }
+
+    public boolean isSkipIngestedReports() {
+        return skipIngestedReports;
+    }
+
+    public boolean isAsynchronousIngestion() {
+        return asynchronousIngestion;
+    }
+
+    public String getReportIncludes() {
+        return reportIncludes;
+    }
+
+    public String getReportExcludes() {
+        return reportExcludes;
+    }
+
+    public int getMaxReportFileSizeMb() {
+        return maxReportFileSizeMb;
+    }
+
+    public int getMaxReportFileCount() {
+        return maxReportFileCount;
+    }
+
+    public int getReportRetentionDays() {
+        return reportRetentionDays;
+    }
+
+    public ReportFilter getReportFilter() {
+        return new ReportFilter(
+            reportIncludes, reportExcludes, maxReportFileSizeMb * 1024L * 1024L, maxReportFileCount,
+            TimeUnit.DAYS.toMillis(reportRetentionDays));
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    @DataBoundSetter
+    public void setIngestionMode(IngestionMode ingestionMode) {
+        this.ingestionMode = ingestionMode;
+    }
+
+    @DataBoundSetter
+    public void setSkipIngestedReports(boolean skipIngestedReports) {
+        this.skipIngestedReports = skipIngestedReports;
+    }
+
+    @DataBoundSetter
+    public void setAsynchronousIngestion(boolean asynchronousIngestion) {
+        this.asynchronousIngestion = asynchronousIngestion;
+    }
+
+    @DataBoundSetter
+    public void setReportIncludes(String reportIncludes) {
+        this.reportIncludes = reportIncludes;
+    }
+
+    @DataBoundSetter
+    public void setReportExcludes(String reportExcludes) {
+        this.reportExcludes = reportExcludes;
+    }
+
+    @DataBoundSetter
+    public void setMaxReportFileSizeMb(int maxReportFileSizeMb) {
+        this.maxReportFileSizeMb = maxReportFileSizeMb;
+    }
+
+    @DataBoundSetter
+    public void setMaxReportFileCount(int maxReportFileCount) {
+        this.maxReportFileCount = maxReportFileCount;
+    }
+
+    @DataBoundSetter
+    public void setReportRetentionDays(int reportRetentionDays) {
+        this.reportRetentionDays = reportRetentionDays;
+    }
+
     //////////////
     // OVERRIDE //
     //////////////
@@ -106,28 +212,24 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
         return BuildStepMonitor.NONE;
     }
 
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return (DescriptorImpl) super.getDescriptor();
+    }
+
     /////////////
     // PRIVATE //
     /////////////
 
     private void getAndParsePerformanceReports(Run<?, ?> build, FilePath workspace) throws InterruptedException {
-        WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(build.getParent());
         ILogger logger = new WatchrJenkinsLogger(WatchrJenkinsApp.getLogForBuild(build));
-        coreApp.setLogger(logger);
-
-        IFileReader fileReader = new WatchrJenkinsFileReader(workspace, logger);
-        coreApp.setFileReader(fileReader);
-
-        JenkinsConfigContext configContext =
-            WatchrJenkinsApp.getConfigContextOrDefault(build.getParent());
-        String dbName = configContext.getDatabaseName();
+        WatchrJenkinsFileReader fileReader = new WatchrJenkinsFileReader(workspace, logger);
 
         FilePath perfResultsFilePath = workspace.child(performanceReportsLocation);
+        FilePath snapshotRoot = null;
+        ReportFilter reportFilter = getReportFilter();
         
         try {
-            String filePathString = perfResultsFilePath.toURI().getPath();
-            List<String> childFiles = fileReader.getFolderContents(filePathString);
-            
             String configFileContents = "";
             if(StringUtils.isNotBlank(watchrConfigJson)) {
                 configFileContents = watchrConfigJson;
@@ -135,20 +237,46 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
                 configFileContents = fileReader.readFromFile(watchrConfigFilepath);
             }
 
-            boolean anyReportsExist = !childFiles.isEmpty();
-            if(anyReportsExist && StringUtils.isNotBlank(configFileContents)) {
-                logger.logInfo("Requesting new plots from " + filePathString + " for db " + dbName + " (watchr-jenkins)");
-                coreApp.addToDatabase(dbName, filePathString, configFileContents);
-                logger.logInfo("Saving database... (watchr-jenkins)");
-                coreApp.saveDatabase(dbName);
+            if(StringUtils.isBlank(configFileContents)) {
+                logger.logError("No Watchr configuration specified!");
+                return;
+            }
 
-                if(exportGraphs) {
-                    doExportGraphs(build, workspace, dbName);
+            if(asynchronousIngestion) {
+                // The workspace may be reused as soon as this build ends, so the
+                // reports are copied to the build directory for the queue to read.
+                snapshotRoot = new FilePath(new File(build.getRootDir(), IngestionQueue.QUEUED_REPORTS_DIR));
+                perfResultsFilePath = copyReportsToController(perfResultsFilePath, snapshotRoot, reportFilter, logger);
+                fileReader = new WatchrJenkinsFileReader(snapshotRoot, logger);
+
+                IngestionTask task = new IngestionTask(
+                    build, performanceReportsLocation, configFileContents, skipIngestedReports, reportFilter);
+                if(IngestionQueue.get().offer(task)) {
+                    logger.logInfo("Queued performance reports for ingestion (watchr-jenkins)");
+                    if(exportGraphs) {
+                        logger.logWarning("Graphs are not exported when performance reports are ingested asynchronously");
+                    }
+                    // The queue now owns the copied reports.
+                    snapshotRoot = null;
+                    return;
                 }
-            } else if(!anyReportsExist) {
-                logger.logError("No performance reports were located at path " + filePathString);
-            } else if(StringUtils.isBlank(configFileContents)) {
-                logger.logError("No Watchr configuration specified!");
+                logger.logWarning("The Watchr ingestion queue is full, so this build will ingest its own performance reports");
+            } else if(getIngestionMode() == IngestionMode.LOCAL_SNAPSHOT || DatabaseJournal.isEnabled()) {
+                // A journaled ingest keeps its reports until the next checkpoint,
+                // so it always needs a copy of them on the controller.
+                snapshotRoot = new FilePath(new File(build.getRootDir(), REPORT_SNAPSHOT_DIR));
+                perfResultsFilePath = copyReportsToController(perfResultsFilePath, snapshotRoot, reportFilter, logger);
+                fileReader = new WatchrJenkinsFileReader(snapshotRoot, logger);
+            }
+
+            ReportIngester ingester = new ReportIngester(
+                getIngestionMode() == IngestionMode.AGENT_SCAN, skipIngestedReports, reportFilter,
+                getDescriptor().getReportReaderThreads());
+            boolean ingested = ingester.ingest(build, fileReader, perfResultsFilePath, snapshotRoot, configFileContents, logger);
+
+            if(ingested && exportGraphs) {
+                String dbName = WatchrJenkinsApp.getConfigContextOrDefault(build.getParent()).getDatabaseName();
+                doExportGraphs(build, workspace, dbName);
             }
         } catch (IOException e1) {
             logger.logError("An error occurred reading the file path: ", e1);
@@ -159,11 +287,44 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
             throw e3;
         } catch (Exception e4) {
             logger.logError("A generic exception occurred: ", e4);
+        } finally {
+            deleteReportSnapshot(snapshotRoot, logger);
+        }
+    }
+
+    /**
+     * Copies the performance report directory to the controller as a single
+     * compressed stream. The copy mirrors the workspace layout, so that report
+     * paths relative to the copy's root are the same as they would have been
+     * relative to the workspace.
+     * @return The copied report directory.
+     */
+    private FilePath copyReportsToController(
+            FilePath perfResultsFilePath, FilePath snapshotRoot, ReportFilter reportFilter, ILogger logger)
+            throws IOException, InterruptedException {
+        snapshotRoot.deleteRecursive();
+        FilePath localReportsFilePath = snapshotRoot.child(performanceReportsLocation);
+        localReportsFilePath.mkdirs();
+
+        // Patterns are applied during the copy; size and count limits are
+        // applied when the copied directory is scanned.
+        String includes = StringUtils.isNotBlank(reportFilter.getIncludes()) ? reportFilter.getIncludes() : "**/*";
+        int copiedFiles = perfResultsFilePath.copyRecursiveTo(includes, reportFilter.getExcludes(), localReportsFilePath);
+        logger.logInfo("Copied " + copiedFiles + " report files to the controller (watchr-jenkins)");
+        return localReportsFilePath;
+    }
+
+    private void deleteReportSnapshot(FilePath snapshotRoot, ILogger logger) throws InterruptedException {
+        if(snapshotRoot != null) {
+            try {
+                snapshotRoot.deleteRecursive();
+            } catch(IOException e) {
+                logger.logError("An error occurred cleaning up the report snapshot: ", e);
+            }
         }
     }
 
     private void doExportGraphs(Run<?, ?> build, FilePath workspace, String databaseName) throws InterruptedException {
-        WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(build.getParent());
         ILogger logger = new WatchrJenkinsLogger(WatchrJenkinsApp.getLogForBuild(build));
         try {
             long timestamp = System.currentTimeMillis();
@@ -180,8 +341,19 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
             exportDisplayConfig.setNextPlotDbLocation(CommonConstants.ROOT_PATH_ALIAS);
             exportDisplayConfig.setLeafNodeStrategy(LeafNodeStrategy.SHOW_NOTHING);
 
-            coreApp.getLogger().logInfo("Exporting graphs to " + graphExportDestinationPath + "...");
-            coreApp.exportAllGraphHtml(databaseName, exportDisplayConfig, graphExportDestinationPath);
+            // Hold the job's write lock, so that a concurrent build cannot swap out
+            // the core app's logger or change the database mid-export.
+            DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(build.getParent());
+            writeLock.lock();
+            try {
+                WatchrJenkinsApp.loadDatabase(build.getParent());
+                WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(build.getParent());
+                coreApp.setLogger(logger);
+                logger.logInfo("Exporting graphs to " + graphExportDestinationPath + "...");
+                coreApp.exportAllGraphHtml(databaseName, exportDisplayConfig, graphExportDestinationPath);
+            } finally {
+                writeLock.unlock();
+            }
         } catch (IOException e1) {
             logger.logError("An error occurred using the graph export directory: ", e1);
         } catch (InterruptedException e3) {
@@ -205,13 +377,195 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
     // INNER CLASS //
     /////////////////
 
+    /**
+     * Controls how performance reports are gathered from the build workspace.
+     */
+    public enum IngestionMode {
+        /**
+         * Every file query made while parsing is a separate call to the build agent.
+         */
+        PER_FILE("Query each report file from the agent as it is parsed"),
+
+        /**
+         * The report directory is walked once on the build agent, and file listings
+         * and file type checks are answered from the result.
+         */
+        AGENT_SCAN("Scan the report directory on the agent before parsing"),
+
+        /**
+         * The report directory is copied to the controller as a single compressed
+         * stream, and parsed from the controller's local disk.
+         */
+        LOCAL_SNAPSHOT("Copy the report directory to the controller before parsing");
+
+        private final String displayName;
+
+        private IngestionMode(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
     @Extension
     public static class DescriptorImpl extends BuildStepDescriptor<Publisher> {
 
+        public static final int DEFAULT_REPORT_READER_THREADS = 4;
+        public static final int DEFAULT_INGESTION_WORKERS = 2;
+        public static final int DEFAULT_INGESTION_QUEUE_CAPACITY = 100;
+        public static final int DEFAULT_CHECKPOINT_INTERVAL_MINUTES = 10;
+        public static final int DEFAULT_DATABASE_IDLE_MINUTES = 60;
+        public static final int DEFAULT_DATABASE_CACHE_MEGABYTES = 1024;
+        public static final int DEFAULT_PRELOAD_DATABASE_COUNT = 20;
+        public static final int DEFAULT_PRELOAD_THREADS = 2;
+        public static final int DEFAULT_RENDER_CACHE_MEGABYTES = 32;
+
+        private int reportReaderThreads = DEFAULT_REPORT_READER_THREADS;
+        private int ingestionWorkers = DEFAULT_INGESTION_WORKERS;
+        private int ingestionQueueCapacity = DEFAULT_INGESTION_QUEUE_CAPACITY;
+        private boolean journalDatabaseWrites;
+        private int checkpointIntervalMinutes = DEFAULT_CHECKPOINT_INTERVAL_MINUTES;
+        private int databaseIdleMinutes = DEFAULT_DATABASE_IDLE_MINUTES;
+        private int databaseCacheMegabytes = DEFAULT_DATABASE_CACHE_MEGABYTES;
+        private int preloadDatabaseCount = DEFAULT_PRELOAD_DATABASE_COUNT;
+        private int preloadThreads = DEFAULT_PRELOAD_THREADS;
+        private int renderCacheMegabytes = DEFAULT_RENDER_CACHE_MEGABYTES;
+
         public DescriptorImpl() {
             load();
         }
 
+        /**
+         * @return The number of report files that may be read from a build agent at once,
+         * for a single build.
+         */
+        public int getReportReaderThreads() {
+            return reportReaderThreads > 0 ? reportReaderThreads : DEFAULT_REPORT_READER_THREADS;
+        }
+
+        @DataBoundSetter
+        public void setReportReaderThreads(int reportReaderThreads) {
+            this.reportReaderThreads = reportReaderThreads;
+        }
+
+        /**
+         * @return The number of queued builds whose reports may be ingested at once.
+         * Changes take effect when Jenkins is restarted.
+         */
+        public int getIngestionWorkers() {
+            return ingestionWorkers > 0 ? ingestionWorkers : DEFAULT_INGESTION_WORKERS;
+        }
+
+        @DataBoundSetter
+        public void setIngestionWorkers(int ingestionWorkers) {
+            this.ingestionWorkers = ingestionWorkers;
+        }
+
+        /**
+         * @return The number of builds that may wait in the ingestion queue before
+         * further builds ingest their own reports.
+         */
+        public int getIngestionQueueCapacity() {
+            return ingestionQueueCapacity > 0 ? ingestionQueueCapacity : DEFAULT_INGESTION_QUEUE_CAPACITY;
+        }
+
+        @DataBoundSetter
+        public void setIngestionQueueCapacity(int ingestionQueueCapacity) {
+            this.ingestionQueueCapacity = ingestionQueueCapacity;
+        }
+
+        /**
+         * @return Whether database changes are recorded in a {@link DatabaseJournal}
+         * and saved periodically, rather than saved after every change.
+         */
+        public boolean isJournalDatabaseWrites() {
+            return journalDatabaseWrites;
+        }
+
+        @DataBoundSetter
+        public void setJournalDatabaseWrites(boolean journalDatabaseWrites) {
+            this.journalDatabaseWrites = journalDatabaseWrites;
+        }
+
+        /**
+         * @return How long journaled database changes may wait before they are saved.
+         */
+        public int getCheckpointIntervalMinutes() {
+            return checkpointIntervalMinutes > 0 ? checkpointIntervalMinutes : DEFAULT_CHECKPOINT_INTERVAL_MINUTES;
+        }
+
+        @DataBoundSetter
+        public void setCheckpointIntervalMinutes(int checkpointIntervalMinutes) {
+            this.checkpointIntervalMinutes = checkpointIntervalMinutes;
+        }
+
+        /**
+         * @return How long a job's database may go unused before it is dropped from
+         * memory, or 0 to keep databases loaded.
+         */
+        public int getDatabaseIdleMinutes() {
+            return databaseIdleMinutes;
+        }
+
+        @DataBoundSetter
+        public void setDatabaseIdleMinutes(int databaseIdleMinutes) {
+            this.databaseIdleMinutes = databaseIdleMinutes;
+        }
+
+        /**
+         * @return The total size, in megabytes, that the databases held in memory
+         * may take before the least recently used ones are unloaded, or 0 for no limit.
+         * Each database's size is estimated from its files on disk.
+         */
+        public int getDatabaseCacheMegabytes() {
+            return databaseCacheMegabytes;
+        }
+
+        @DataBoundSetter
+        public void setDatabaseCacheMegabytes(int databaseCacheMegabytes) {
+            this.databaseCacheMegabytes = databaseCacheMegabytes;
+        }
+
+        /**
+         * @return The number of most recently changed databases to read into memory
+         * when Jenkins starts, or 0 to read each database only when it is first needed.
+         */
+        public int getPreloadDatabaseCount() {
+            return preloadDatabaseCount;
+        }
+
+        @DataBoundSetter
+        public void setPreloadDatabaseCount(int preloadDatabaseCount) {
+            this.preloadDatabaseCount = preloadDatabaseCount;
+        }
+
+        /**
+         * @return The number of databases that may be preloaded at once.
+         */
+        public int getPreloadThreads() {
+            return preloadThreads > 0 ? preloadThreads : DEFAULT_PRELOAD_THREADS;
+        }
+
+        @DataBoundSetter
+        public void setPreloadThreads(int preloadThreads) {
+            this.preloadThreads = preloadThreads;
+        }
+
+        /**
+         * @return The total size, in megabytes, of the gzipped graph HTML kept for
+         * recently viewed Performance Reports pages, or 0 to render every view.
+         */
+        public int getRenderCacheMegabytes() {
+            return renderCacheMegabytes;
+        }
+
+        @DataBoundSetter
+        public void setRenderCacheMegabytes(int renderCacheMegabytes) {
+            this.renderCacheMegabytes = renderCacheMegabytes;
+        }
+
         @Override
         public String getDisplayName() {
             return "Publish Watchr Performance Reports";
@@ -237,6 +591,126 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
             return FormValidation.ok();
         }
 
+        /**
+         * Performs on-the-fly validation of the form field 'maxReportFileSizeMb'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckMaxReportFileSizeMb(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the form field 'maxReportFileCount'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckMaxReportFileCount(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the form field 'reportRetentionDays'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckReportRetentionDays(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'reportReaderThreads'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckReportReaderThreads(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'ingestionWorkers'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckIngestionWorkers(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'ingestionQueueCapacity'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckIngestionQueueCapacity(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'checkpointIntervalMinutes'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckCheckpointIntervalMinutes(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'databaseIdleMinutes'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckDatabaseIdleMinutes(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'databaseCacheMegabytes'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckDatabaseCacheMegabytes(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'preloadDatabaseCount'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckPreloadDatabaseCount(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'preloadThreads'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckPreloadThreads(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs on-the-fly validation of the global form field 'renderCacheMegabytes'.
+         *
+         * @param value This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the browser.
+         */
+        public FormValidation doCheckRenderCacheMegabytes(@QueryParameter String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+
         @Override
         @SuppressWarnings("rawtypes")
         public boolean isApplicable(Class<? extends AbstractProject> aClass) {
@@ -246,6 +720,7 @@ public final class PerformanceRecorder extends Recorder implements SimpleBuildSt
 
         @Override
         public boolean configure(StaplerRequest req, net.sf.json.JSONObject formData) throws Descriptor.FormException {
+            req.bindJSON(this, formData);
             save();
             return super.configure(req,formData);
         }
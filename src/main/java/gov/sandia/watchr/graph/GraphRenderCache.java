@@ -0,0 +1,298 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import gov.sandia.watchr.config.GraphDisplayConfig;
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.GraphViewState;
+import gov.sandia.watchr.util.HashUtil;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+
+/**
+ * Keeps the graph HTML rendered for recent views of each job's Performance
+ * Reports page, so that refreshing a page whose database has not changed does
+ * not render every graph again.<br>
+ * <br>
+ * Entries are keyed by the job, its database's {@link DatabaseCache}
+ * generation, and every display setting that affects the graphs. A change to
+ * the database therefore moves every view of it to a new key, and the old
+ * entries simply age out. Entries are stored gzipped, and the least recently
+ * used are dropped once the cache grows past its configured size.<br>
+ * <br>
+ * Only the graphs are cached. The menu bar above them carries the viewer's
+ * crumb, so it is built for every request.
+ */
+public class GraphRenderCache {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long totalBytes;
+    private static long hits;
+    private static long misses;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private GraphRenderCache() {}
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * @param job The job.
+     * @param config The display settings the graphs are rendered with.
+     * @return The key for the graphs of the job's current database, rendered
+     * with the given settings.
+     */
+    public static String getKey(Job<?,?> job, GraphDisplayConfig config) {
+        return new StringBuilder(job.getFullName())
+            .append('@').append(DatabaseCache.getGeneration(job))
+            .append('|').append(config.getGraphsPerPage())
+            .append('|').append(GraphViewState.of(config))
+            .toString();
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public static synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * @param key The key from {@link #getKey(Job, GraphDisplayConfig)}.
+     * @return The cached graphs, or null if there are none.
+     */
+    public static synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if(entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches newly rendered graphs, dropping the least recently used entries
+     * if the cache has grown past its configured size.
+     * @param key The key from {@link #getKey(Job, GraphDisplayConfig)}.
+     * @param entry The rendered graphs.
+     */
+    public static synchronized void put(String key, Entry entry) {
+        long maxBytes = getMaxBytes();
+        if(entry.getSize() > maxBytes) {
+            return;
+        }
+
+        Entry replaced = entries.put(key, entry);
+        totalBytes += entry.getSize() - (replaced != null ? replaced.getSize() : 0);
+        Iterator<Entry> it = entries.values().iterator();
+        while(totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getSize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops every entry for a job that has been deleted, renamed or moved, so
+     * that a new job that takes its name never sees its graphs.
+     * @param jobFullName The job's full name before it was deleted, renamed or moved.
+     */
+    public static synchronized void forget(String jobFullName) {
+        String prefix = jobFullName + "@";
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while(it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            if(entry.getKey().startsWith(prefix)) {
+                totalBytes -= entry.getValue().getSize();
+                it.remove();
+            }
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static long getMaxBytes() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        PerformanceRecorder.DescriptorImpl descriptor =
+            jenkins != null ? jenkins.getDescriptorByType(PerformanceRecorder.DescriptorImpl.class) : null;
+        int megabytes = descriptor != null ?
+            descriptor.getRenderCacheMegabytes() : PerformanceRecorder.DescriptorImpl.DEFAULT_RENDER_CACHE_MEGABYTES;
+        return megabytes * 1024L * 1024L;
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    /**
+     * The graphs rendered for one view of a job's database.
+     */
+    public static class Entry {
+        private final byte[] gzippedHtml;
+        private final String htmlHash;
+        private final String plotDbLocation;
+        private final int numberOfGraphs;
+
+        /**
+         * @param html The graph HTML.
+         * @param plotDbLocation The location of the plots that were rendered, or
+         * null if the renderer did not report one.
+         * @param numberOfGraphs The total number of graphs at that location.
+         */
+        public Entry(String html, String plotDbLocation, int numberOfGraphs) throws IOException {
+            byte[] htmlBytes = html.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(OutputStream os = new GZIPOutputStream(bytes)) {
+                os.write(htmlBytes);
+            }
+            this.gzippedHtml = bytes.toByteArray();
+            this.htmlHash = HashUtil.sha256(html);
+            this.plotDbLocation = plotDbLocation;
+            this.numberOfGraphs = numberOfGraphs;
+        }
+
+        /**
+         * Writes the graph HTML, decompressing it as it goes, so that the whole
+         * page never has to be held in memory as one string.
+         * @param writer The writer to write to.
+         */
+        public void writeHtml(Writer writer) throws IOException {
+            try(Reader reader = new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(gzippedHtml)), StandardCharsets.UTF_8)) {
+                char[] buffer = new char[8192];
+                int read;
+                while((read = reader.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+            }
+        }
+
+        /**
+         * Returns the graph HTML in chunks, each decompressed only when it is
+         * asked for, so that a Jelly page can write the graphs out without
+         * holding them in memory as one string.
+         * @return An iterator over consecutive chunks of the graph HTML.
+         */
+        public Iterator<String> htmlChunks() throws IOException {
+            return new HtmlChunkIterator(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(gzippedHtml)), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @return The graph HTML, gzipped. Must not be modified.
+         */
+        public byte[] getGzippedHtml() {
+            return gzippedHtml;
+        }
+
+        /**
+         * The gzipped and the plain graph HTML are different representations,
+         * so each gets a strong entity tag of its own. Both are derived from
+         * the plain HTML, so neither depends on how the HTML was compressed.
+         * @param gzipped Whether the tag is for the gzipped graph HTML.
+         * @return A strong entity tag for the graph HTML in that coding.
+         */
+        public String getETag(boolean gzipped) {
+            return "\"" + htmlHash + (gzipped ? "-gzip" : "") + "\"";
+        }
+
+        public String getPlotDbLocation() {
+            return plotDbLocation;
+        }
+
+        public int getNumberOfGraphs() {
+            return numberOfGraphs;
+        }
+
+        private long getSize() {
+            return gzippedHtml.length;
+        }
+    }
+
+    /**
+     * Reads a reader one buffer at a time, closing it once it is used up.
+     */
+    private static class HtmlChunkIterator implements Iterator<String> {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private String nextChunk;
+
+        private HtmlChunkIterator(Reader reader) {
+            this.reader = reader;
+            this.nextChunk = readChunk();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextChunk != null;
+        }
+
+        @Override
+        public String next() {
+            if(nextChunk == null) {
+                throw new NoSuchElementException();
+            }
+            String chunk = nextChunk;
+            nextChunk = readChunk();
+            return chunk;
+        }
+
+        private String readChunk() {
+            try {
+                int read = reader.read(buffer);
+                if(read == -1) {
+                    reader.close();
+                    return null;
+                }
+                return new String(buffer, 0, read);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
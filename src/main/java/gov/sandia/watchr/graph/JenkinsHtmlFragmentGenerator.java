@@ -17,6 +17,7 @@ import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 
 import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
+import gov.sandia.watchr.model.GraphViewState;
 import gov.sandia.watchr.model.JenkinsConfigContext;
 import gov.sandia.watchr.util.CommonConstants;
 import gov.sandia.watchr.util.StringUtil;
@@ -36,8 +37,9 @@ public class JenkinsHtmlFragmentGenerator {
         int currentPage = context.getGraphDisplayConfig().getPage();
         int numberOfPages = (int) Math.ceil((double)numberOfGraphs / (double)context.getGraphDisplayConfig().getGraphsPerPage());
         String graphSelectedPath = context.getGraphDisplayConfig().getLastPlotDbLocation();
+        String viewSettings = GraphViewState.of(context.getGraphDisplayConfig()).toSettingsQueryString();
 
-        sb.append(buildPagingLinks(currentPage, numberOfPages, graphSelectedPath));
+        sb.append(buildPagingLinks(currentPage, numberOfPages, graphSelectedPath, viewSettings));
         return sb.toString();
     }
 
@@ -110,7 +112,8 @@ public class JenkinsHtmlFragmentGenerator {
         tdContents.append(HtmlUtil.createH2("Performance Report Display Configuration", "padding-top:20px;padding-left:20px;"));
         String[] pathComponents = StringUtil.splitFilePath(context.getGraphDisplayConfig().getLastPlotDbLocation());
         if(pathComponents.length > 1 || (pathComponents.length == 1 && !pathComponents[0].equals(CommonConstants.ROOT_PATH_ALIAS))) {
-            tdContents.append(buildVisualDirectoryPath(pathComponents, context.getGraphDisplayConfig().getPage(), "/"));
+            String viewSettings = GraphViewState.of(context.getGraphDisplayConfig()).toSettingsQueryString();
+            tdContents.append(buildVisualDirectoryPath(pathComponents, context.getGraphDisplayConfig().getPage(), viewSettings, "/"));
             tdContents.append(HtmlConstants.BR);
         }
         tdContents.append(buildOptionsForm(context));
@@ -232,11 +235,12 @@ public class JenkinsHtmlFragmentGenerator {
     }
 
     protected String buildVisualDirectoryPath(
-            String[] pathComponents, final int currentPage, String displayedLevelSeparator) throws UnsupportedEncodingException {
+            String[] pathComponents, final int currentPage, String viewSettings,
+            String displayedLevelSeparator) throws UnsupportedEncodingException {
         final String visualSplit = " / ";
 
         StringBuilder pSb = new StringBuilder();
-        pSb.append(HtmlUtil.createLink(HtmlUtil.createGraphLinkParameterList(CommonConstants.ROOT_PATH_ALIAS, currentPage), "Home"));
+        pSb.append(buildGraphLink(CommonConstants.ROOT_PATH_ALIAS, currentPage, viewSettings, "Home"));
 
         StringBuilder buildPath = new StringBuilder();
         for (int i = 0; i < pathComponents.length; i++) {
@@ -249,7 +253,7 @@ public class JenkinsHtmlFragmentGenerator {
 
             pSb.append(visualSplit);
             if (i < pathComponents.length - 1) {
-                pSb.append(HtmlUtil.createLink(HtmlUtil.createGraphLinkParameterList(StringUtil.encode(buildPath.toString()), currentPage), pathComponent));
+                pSb.append(buildGraphLink(StringUtil.encode(buildPath.toString()), currentPage, viewSettings, pathComponent));
             } else {
                 // The last part of the displayed path does not have a link.
                 pSb.append(pathComponent);
@@ -270,7 +274,8 @@ public class JenkinsHtmlFragmentGenerator {
         return sb.toString();
     }
 
-    protected String buildPagingLinks(int currentPage, int numberOfPages, String graphSelectedPath) throws UnsupportedEncodingException {
+    protected String buildPagingLinks(
+            int currentPage, int numberOfPages, String graphSelectedPath, String viewSettings) throws UnsupportedEncodingException {
         StringBuilder sb = new StringBuilder();
         StringBuilder pStyleSb = new StringBuilder();
         pStyleSb.append("border-bottom: 1px #DDDDDD solid;");
@@ -286,7 +291,7 @@ public class JenkinsHtmlFragmentGenerator {
             if(i == currentPage) {
                 mainGraphPSb.append(JenkinsHtmlUtil.createStrong(Integer.toString(i)));
             } else {
-                mainGraphPSb.append(buildPageLink(graphSelectedPath, i, Integer.toString(i)));
+                mainGraphPSb.append(buildPageLink(graphSelectedPath, i, viewSettings, Integer.toString(i)));
             }
             if(i < numberOfPages) {
                 mainGraphPSb.append(" | ");
@@ -296,10 +301,19 @@ public class JenkinsHtmlFragmentGenerator {
         return sb.toString();
     }
 
-    protected String buildPageLink(String path, int newPage, String pageLinkText) throws UnsupportedEncodingException {
+    protected String buildPageLink(String path, int newPage, String viewSettings, String pageLinkText) throws UnsupportedEncodingException {
         StringBuilder sb = new StringBuilder();
-        sb.append(HtmlUtil.createLink(HtmlUtil.createGraphLinkParameterList(path, newPage), pageLinkText));
+        sb.append(buildGraphLink(path, newPage, viewSettings, pageLinkText));
         sb.append(HtmlUtil.createInput("", "", "", "page", "hidden", Integer.toString(newPage)));
         return sb.toString();
     }
+
+    /**
+     * Links to another location or page, keeping the rest of the viewer's
+     * settings, since no settings are remembered between requests.
+     */
+    protected String buildGraphLink(String path, int page, String viewSettings, String linkText) throws UnsupportedEncodingException {
+        String parameterList = HtmlUtil.createGraphLinkParameterList(path, page) + "&" + viewSettings;
+        return HtmlUtil.createLink(parameterList, linkText);
+    }
 }
\ No newline at end of file
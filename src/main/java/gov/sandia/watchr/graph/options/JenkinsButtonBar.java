@@ -9,6 +9,7 @@ package gov.sandia.watchr.graph.options;
 
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import gov.sandia.watchr.db.IDatabase;
@@ -16,6 +17,7 @@ import gov.sandia.watchr.graph.HtmlUtil;
 import gov.sandia.watchr.graph.chartreuse.model.PlotWindowModel;
 import gov.sandia.watchr.graph.library.IHtmlButtonRenderer;
 import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.model.GraphViewState;
 import gov.sandia.watchr.model.JenkinsConfigContext;
 import gov.sandia.watchr.util.FileUtil;
 
@@ -28,6 +30,10 @@ public class JenkinsButtonBar extends AbstractButtonBar {
     public static final String DIVE_IMG_PATH   = "/plugin/watchr-jenkins/dive.png";
     public static final String DELETE_IMG_PATH = "/plugin/watchr-jenkins/delete.png";
 
+    // The view being rendered on this thread. A job's button bar is shared by
+    // all of its viewers, so the view cannot be kept on the bar itself.
+    private static final ThreadLocal<GraphViewState> renderedViewState = new ThreadLocal<>();
+
     private final ILogger logger;
 
     /////////////////
@@ -39,6 +45,23 @@ public class JenkinsButtonBar extends AbstractButtonBar {
         this.logger = logger;
     }
 
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * Sets the view whose graphs are about to be rendered on this thread, so
+     * that the links on their buttons keep the viewer's display settings.
+     * @param viewState The view, or null once rendering is done.
+     */
+    public static void setRenderedViewState(GraphViewState viewState) {
+        if(viewState != null) {
+            renderedViewState.set(viewState);
+        } else {
+            renderedViewState.remove();
+        }
+    }
+
     //////////////
     // OVERRIDE //
     //////////////
@@ -61,7 +84,7 @@ public class JenkinsButtonBar extends AbstractButtonBar {
         IDatabase db = getButtonRenderer().getDatabase();
         Map<String,String> params = new HashMap<>();
         try {
-            params = getParameterMapForChildButton(db, plot);
+            params = addViewSettings(getParameterMapForChildButton(db, plot), renderedViewState.get());
         } catch(UnsupportedEncodingException e) {
             logger.logError("An error occurred parsing parameters for the plot " + plot.getName(), e);
         }
@@ -75,6 +98,25 @@ public class JenkinsButtonBar extends AbstractButtonBar {
         }
     }
 
+    /**
+     * Adds the view's display settings to a child link's parameters. The
+     * parameters already chosen for the child, such as its path, are kept.
+     * @param params The child link's parameters.
+     * @param viewState The view being rendered, or null if there is none.
+     * @return The parameters, with the view's settings added.
+     */
+    static Map<String,String> addViewSettings(Map<String,String> params, GraphViewState viewState)
+            throws UnsupportedEncodingException {
+        if(params == null || params.isEmpty() || viewState == null) {
+            return params != null ? params : new HashMap<>();
+        }
+        Map<String,String> viewParams = new LinkedHashMap<>(params);
+        for(Map.Entry<String,String> setting : viewState.toSettingsParameterMap().entrySet()) {
+            viewParams.putIfAbsent(setting.getKey(), setting.getValue());
+        }
+        return viewParams;
+    }
+
     private String getDeleteButton(PlotWindowModel plot) {
         StringBuilder sb = new StringBuilder();
 
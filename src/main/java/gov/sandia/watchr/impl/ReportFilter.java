@@ -0,0 +1,95 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.impl;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Describes which files in a performance report directory should be
+ * ingested. Include and exclude patterns are comma-separated Ant-style
+ * globs, relative to the report directory (for example, "**&#47;*.xml").
+ * A size, count or age limit of zero means "no limit". File ages are judged
+ * by the build agent's clock, against each file's modification time.
+ */
+public class ReportFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final ReportFilter NONE = new ReportFilter("", "", 0, 0);
+
+    private final String includes;
+    private final String excludes;
+    private final long maxFileSize;
+    private final int maxFileCount;
+    private final long maxFileAge;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public ReportFilter(String includes, String excludes, long maxFileSize, int maxFileCount) {
+        this(includes, excludes, maxFileSize, maxFileCount, 0);
+    }
+
+    /**
+     * @param includes Comma-separated globs of files to include.
+     * @param excludes Comma-separated globs of files to exclude.
+     * @param maxFileSize The largest file to read, in bytes.
+     * @param maxFileCount The most files to read.
+     * @param maxFileAge The oldest file to read, in milliseconds since it was
+     * last modified.
+     */
+    public ReportFilter(String includes, String excludes, long maxFileSize, int maxFileCount, long maxFileAge) {
+        this.includes = StringUtils.isBlank(includes) ? "" : includes.trim();
+        this.excludes = StringUtils.isBlank(excludes) ? "" : excludes.trim();
+        this.maxFileSize = Math.max(0, maxFileSize);
+        this.maxFileCount = Math.max(0, maxFileCount);
+        this.maxFileAge = Math.max(0, maxFileAge);
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getIncludes() {
+        return includes;
+    }
+
+    public String getExcludes() {
+        return excludes;
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public int getMaxFileCount() {
+        return maxFileCount;
+    }
+
+    public long getMaxFileAge() {
+        return maxFileAge;
+    }
+
+    public boolean hasPatterns() {
+        return !includes.isEmpty() || !excludes.isEmpty();
+    }
+
+    /**
+     * @return True if this filter would exclude anything at all.
+     */
+    public boolean isActive() {
+        return hasPatterns() || maxFileSize > 0 || maxFileCount > 0 || maxFileAge > 0;
+    }
+}
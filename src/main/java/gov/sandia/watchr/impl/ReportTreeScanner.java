@@ -0,0 +1,172 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gov.sandia.watchr.util.HashUtil;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Walks a performance report directory on the build agent and returns a
+ * {@link ReportTreeSnapshot} describing the report files beneath it. This
+ * replaces the one-round-trip-per-query pattern of listing and probing the
+ * report directory from the controller.<br>
+ * <br>
+ * A {@link ReportFilter} may narrow the files included in the snapshot. Its
+ * glob patterns, size limit, count limit and age limit are all evaluated
+ * here, on the agent, during the same walk. Optionally, a SHA-256 digest of each included
+ * file's contents is computed as well, so that unchanged reports can be
+ * recognized without transferring them.
+ */
+public class ReportTreeScanner extends MasterToSlaveFileCallable<ReportTreeSnapshot> {
+
+    private static final long serialVersionUID = 1L;
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final boolean computeHashes;
+    private final ReportFilter filter;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public ReportTreeScanner() {
+        this(false, ReportFilter.NONE);
+    }
+
+    public ReportTreeScanner(boolean computeHashes, ReportFilter filter) {
+        this.computeHashes = computeHashes;
+        this.filter = filter;
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public ReportTreeSnapshot invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+        ReportTreeSnapshot snapshot = new ReportTreeSnapshot(f.getAbsolutePath());
+        if(f.isDirectory()) {
+            List<String> relativePaths = new ArrayList<>();
+            if(filter.hasPatterns()) {
+                String includes = filter.getIncludes().isEmpty() ? "**/*" : filter.getIncludes();
+                String[] includedFiles =
+                    Util.createFileSet(f, includes, filter.getExcludes()).getDirectoryScanner().getIncludedFiles();
+                for(String includedFile : includedFiles) {
+                    relativePaths.add(includedFile.replace(File.separatorChar, '/'));
+                }
+            } else {
+                walk(f, "", relativePaths);
+            }
+            Collections.sort(relativePaths);
+
+            ReportTreeSnapshot.Entry rootEntry = newEntry(f, true);
+            snapshot.addEntry(rootEntry);
+            int excludedFiles = 0;
+            int expiredFiles = 0;
+            int includedFiles = 0;
+            long now = System.currentTimeMillis();
+            for(String relativePath : relativePaths) {
+                if(Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                File file = new File(f, relativePath);
+                if(filter.getMaxFileAge() > 0 && now - file.lastModified() > filter.getMaxFileAge()) {
+                    // Expired files do not count toward the count limit.
+                    expiredFiles++;
+                    continue;
+                }
+
+                boolean tooLarge = filter.getMaxFileSize() > 0 && file.length() > filter.getMaxFileSize();
+                boolean tooMany = filter.getMaxFileCount() > 0 && includedFiles >= filter.getMaxFileCount();
+                if(tooLarge || tooMany) {
+                    excludedFiles++;
+                } else {
+                    addFile(snapshot, f, rootEntry, file, relativePath);
+                    includedFiles++;
+                }
+            }
+            snapshot.setExcludedFileCount(excludedFiles);
+            snapshot.setExpiredFileCount(expiredFiles);
+        }
+        return snapshot;
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private void walk(File directory, String relativePrefix, List<String> relativePaths) throws InterruptedException {
+        if(Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        File[] children = directory.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                String relativePath = relativePrefix + child.getName();
+                if(!child.isDirectory()) {
+                    relativePaths.add(relativePath);
+                } else if(!Files.isSymbolicLink(child.toPath())) {
+                    // Symbolic links to directories are not followed, to avoid walking in circles.
+                    walk(child, relativePath + "/", relativePaths);
+                }
+            }
+        }
+    }
+
+    private void addFile(
+            ReportTreeSnapshot snapshot, File root, ReportTreeSnapshot.Entry rootEntry, File file, String relativePath)
+            throws IOException {
+        // Make sure every folder between the root and the file is present,
+        // and that each one lists its child.
+        ReportTreeSnapshot.Entry parentEntry = rootEntry;
+        File parent = root;
+        String[] pathComponents = relativePath.split("/");
+        for(int i = 0; i < pathComponents.length - 1; i++) {
+            File directory = new File(parent, pathComponents[i]);
+            ReportTreeSnapshot.Entry directoryEntry = snapshot.getEntry(directory.getAbsolutePath());
+            if(directoryEntry == null) {
+                directoryEntry = newEntry(directory, true);
+                snapshot.addEntry(directoryEntry);
+                parentEntry.addChildUriPath(directoryEntry.getUriPath());
+            }
+            parentEntry = directoryEntry;
+            parent = directory;
+        }
+
+        ReportTreeSnapshot.Entry fileEntry = newEntry(file, false);
+        snapshot.addEntry(fileEntry);
+        parentEntry.addChildUriPath(fileEntry.getUriPath());
+    }
+
+    private ReportTreeSnapshot.Entry newEntry(File file, boolean isDirectory) throws IOException {
+        String contentHash = (computeHashes && !isDirectory) ? hash(file) : null;
+        return new ReportTreeSnapshot.Entry(
+            file.getAbsolutePath(), file.toURI().getPath(), isDirectory, file.length(), file.lastModified(), contentHash);
+    }
+
+    private String hash(File file) throws IOException {
+        try(InputStream is = Files.newInputStream(file.toPath())) {
+            return HashUtil.sha256(is);
+        }
+    }
+}
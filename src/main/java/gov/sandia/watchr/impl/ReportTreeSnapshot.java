@@ -0,0 +1,253 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A serializable picture of a performance report directory tree, gathered on
+ * the build agent in a single remoting call by {@link ReportTreeScanner}.
+ * {@link WatchrJenkinsFileReader} consults this snapshot to answer structural
+ * questions (exists, isDirectory, folder contents) about paths beneath the
+ * snapshot root, without going back over the channel for each one.<br>
+ * <br>
+ * Paths are keyed by their absolute location on the agent, with separators
+ * normalized to "/" and no trailing separator.
+ */
+public class ReportTreeSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final String rootPath;
+    private final Map<String, Entry> entries;
+    private int excludedFileCount;
+    private int expiredFileCount;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public ReportTreeSnapshot(String rootPath) {
+        this.rootPath = normalize(rootPath);
+        this.entries = new HashMap<>();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * @param path An absolute path.
+     * @return True if the path is the snapshot root or lies beneath it, meaning
+     * that this snapshot is authoritative for it.
+     */
+    public boolean covers(String path) {
+        String normalized = normalize(path);
+        return normalized.equals(rootPath) || normalized.startsWith(rootPath + "/");
+    }
+
+    public Entry getEntry(String path) {
+        return entries.get(normalize(path));
+    }
+
+    /**
+     * @param entry An entry in this snapshot.
+     * @return The path of the entry relative to the snapshot root.
+     */
+    public String getRelativePath(Entry entry) {
+        String normalized = normalize(entry.getPath());
+        if(normalized.length() > rootPath.length()) {
+            return normalized.substring(rootPath.length() + 1);
+        }
+        return "";
+    }
+
+    public int getFileCount() {
+        int count = 0;
+        for(Entry entry : entries.values()) {
+            if(!entry.isDirectory()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of files left out of this snapshot because of a
+     * {@link ReportFilter} size or count limit.
+     */
+    public int getExcludedFileCount() {
+        return excludedFileCount;
+    }
+
+    /**
+     * @return The number of files left out of this snapshot because they are
+     * older than the {@link ReportFilter}'s age limit.
+     */
+    public int getExpiredFileCount() {
+        return expiredFileCount;
+    }
+
+    public List<Entry> getFiles() {
+        List<Entry> files = new ArrayList<>();
+        for(Entry entry : entries.values()) {
+            if(!entry.isDirectory()) {
+                files.add(entry);
+            }
+        }
+        return files;
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public void setExcludedFileCount(int excludedFileCount) {
+        this.excludedFileCount = excludedFileCount;
+    }
+
+    public void setExpiredFileCount(int expiredFileCount) {
+        this.expiredFileCount = expiredFileCount;
+    }
+
+    public void addEntry(Entry entry) {
+        entries.put(normalize(entry.getPath()), entry);
+    }
+
+    /**
+     * Removes a file from the snapshot, so that it is no longer reported as
+     * existing or listed among its parent folder's contents.
+     * @param entry The entry to remove.
+     */
+    public void removeEntry(Entry entry) {
+        String normalized = normalize(entry.getPath());
+        entries.remove(normalized);
+
+        int lastSeparator = normalized.lastIndexOf('/');
+        if(lastSeparator > 0) {
+            Entry parent = entries.get(normalized.substring(0, lastSeparator));
+            if(parent != null) {
+                parent.childUriPaths.remove(entry.getUriPath());
+            }
+        }
+    }
+
+    /**
+     * Removes every file in the snapshot whose path is among the given paths.
+     * @param paths The normalized paths of the files to remove.
+     * @return The number of files removed.
+     */
+    public int removeFiles(Collection<String> paths) {
+        int removed = 0;
+        for(String path : paths) {
+            Entry entry = getEntry(path);
+            if(entry != null && !entry.isDirectory()) {
+                removeEntry(entry);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /////////////
+    // UTILITY //
+    /////////////
+
+    public static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        while(normalized.length() > 1 && normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    /**
+     * A single file or directory within the snapshot.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final String uriPath;
+        private final boolean directory;
+        private final long size;
+        private final long lastModified;
+        private final String contentHash;
+        private final List<String> childUriPaths;
+
+        /**
+         * @param path The absolute path of the file on the agent.
+         * @param uriPath The URI path of the file, as returned by {@code File.toURI().getPath()}.
+         * @param directory Whether the file is a directory.
+         * @param size The file size in bytes.
+         * @param lastModified The file modification time.
+         * @param contentHash The SHA-256 digest of the file contents, or null
+         * if it was not computed.
+         */
+        public Entry(String path, String uriPath, boolean directory, long size, long lastModified, String contentHash) {
+            this.path = path;
+            this.uriPath = uriPath;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.childUriPaths = new ArrayList<>();
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getUriPath() {
+            return uriPath;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public List<String> getChildUriPaths() {
+            return Collections.unmodifiableList(childUriPaths);
+        }
+
+        public void addChildUriPath(String childUriPath) {
+            childUriPaths.add(childUriPath);
+        }
+    }
+}
@@ -10,12 +10,23 @@ package gov.sandia.watchr.impl;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import gov.sandia.watchr.config.file.IFileReader;
 import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.util.FileUtil;
 import hudson.FilePath;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 
 /**
  * Implementation of {@link IFileReader} that uses Jenkins's {@link FilePath}
@@ -24,7 +35,19 @@ import hudson.FilePath;
  * 1) Files may not exist on the same filesystem as Jenkins, so we can never
  * rely on Java File objects at any point.<br>
  * 2) All file paths given to this class must be relative to the root FilePath
- * provided at construction time.
+ * provided at construction time.<br>
+ * <br>
+ * If a {@link ReportTreeSnapshot} has been supplied, structural queries about
+ * paths beneath the snapshot root are answered from it, rather than by a
+ * remoting call per query.  The same snapshot can be used to fetch report
+ * contents from the agent concurrently before parsing begins (see
+ * {@link #prefetch(ReportTreeSnapshot, int)}). Every reader prefetches on
+ * one shared pool, and all of them together hold at most
+ * {@link #PREFETCH_CHAR_LIMIT} characters of prefetched contents.<br>
+ * <br>
+ * Files that cannot be read are handed to watchr-core as empty contents, and
+ * remembered (see {@link #getUnreadablePaths()}), so that they are not
+ * recorded as ingested.
  * 
  * @author Elliott Ridgway
  */
@@ -34,8 +57,22 @@ public class WatchrJenkinsFileReader implements IFileReader {
     // FIELDS //
     ////////////
 
+    // Upper bound on report contents held in memory by every prefetch at once,
+    // in characters. Strings take two bytes per character, so this is 256 MB.
+    private static final long PREFETCH_CHAR_LIMIT = 128L * 1024L * 1024L;
+
+    private static final AtomicLong prefetchedChars = new AtomicLong();
+    private static ExecutorService prefetchPool;
+    private static int prefetchPoolSize;
+
     private final FilePath root;
     private final ILogger logger;
+    private final Set<String> unreadablePaths = ConcurrentHashMap.newKeySet();
+
+    private ReportTreeSnapshot treeSnapshot;
+    private String anchorPath;
+    private final Map<String, String> prefetchedContents = new ConcurrentHashMap<>();
+    private boolean prefetchReleased; // Guarded by prefetchedContents.
 
     /////////////////
     // CONSTRUCTOR //
@@ -46,14 +83,114 @@ public class WatchrJenkinsFileReader implements IFileReader {
         this.logger = logger;
     }
 
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * @return The normalized remote paths of the files that could not be read.
+     */
+    public Set<String> getUnreadablePaths() {
+        return Collections.unmodifiableSet(unreadablePaths);
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    public void setTreeSnapshot(ReportTreeSnapshot treeSnapshot) {
+        this.treeSnapshot = treeSnapshot;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * @return The characters of prefetched report contents currently held by
+     * every reader.
+     */
+    public static long getPrefetchedChars() {
+        return prefetchedChars.get();
+    }
+
+    /**
+     * Reads the files in a snapshot concurrently, holding their contents until
+     * they are requested through {@link #readFromFile(String)}. Each file is
+     * handed out once, and then forgotten. Files that cannot be read here are
+     * simply read again (and any error logged) when they are requested, as are
+     * files that do not fit in what is left of {@link #PREFETCH_CHAR_LIMIT}.
+     * Contents that are never requested are held until {@link #releasePrefetched()}.<br>
+     * <br>
+     * Every read has finished or been cancelled by the time this returns. A
+     * read that is still unwinding from a cancellation gives back its share
+     * of the limit itself, and never holds on to what it read.
+     * @param snapshot The snapshot describing the files to read.
+     * @param parallelism The maximum number of files to read at once, across
+     * every reader.
+     * @throws InterruptedException Thrown if the build is interrupted while reading.
+     */
+    public void prefetch(ReportTreeSnapshot snapshot, int parallelism) throws InterruptedException {
+        List<ReportTreeSnapshot.Entry> files = snapshot.getFiles();
+        if(parallelism <= 1 || files.size() <= 1) {
+            return;
+        }
+
+        ExecutorService pool = getPrefetchPool(parallelism);
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for(ReportTreeSnapshot.Entry file : files) {
+                // A UTF-8 file never decodes to more characters than it has bytes.
+                tasks.add(pool.submit(() -> prefetchFile(file.getPath(), file.getSize())));
+            }
+
+            for(Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch(ExecutionException e) {
+                    logger.logError("An error occurred prefetching performance reports", e.getCause());
+                }
+            }
+        } catch(InterruptedException e) {
+            // Reads that never started hold nothing, and the rest give back
+            // their reservations as they finish.
+            for(Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the contents of any prefetched files that were never requested,
+     * returning their share of {@link #PREFETCH_CHAR_LIMIT}.
+     */
+    public void releasePrefetched() {
+        synchronized(prefetchedContents) {
+            // Reads that finish after this point drop their contents.
+            prefetchReleased = true;
+            for(String path : new ArrayList<>(prefetchedContents.keySet())) {
+                String contents = prefetchedContents.remove(path);
+                if(contents != null) {
+                    prefetchedChars.addAndGet(-contents.length());
+                }
+            }
+        }
+    }
+
     //////////////
     // OVERRIDE //
     //////////////
 
     @Override
     public String readFromFile(String filePath) {
+        FilePath childFile = root.child(filePath);
         try {
-            FilePath childFile = root.child(filePath);
+            String prefetched = prefetchedContents.remove(ReportTreeSnapshot.normalize(childFile.getRemote()));
+            if(prefetched != null) {
+                prefetchedChars.addAndGet(-prefetched.length());
+                return prefetched;
+            }
             return childFile.readToString();
         } catch(IOException e) {
             logger.logError("An error occurred reading the file at " + filePath, e);
@@ -61,6 +198,7 @@ public class WatchrJenkinsFileReader implements IFileReader {
             logger.logError("An error occurred reading the file at " + filePath, e);
             Thread.currentThread().interrupt();
         }
+        unreadablePaths.add(ReportTreeSnapshot.normalize(childFile.getRemote()));
         return "";
     }
 
@@ -81,9 +219,19 @@ public class WatchrJenkinsFileReader implements IFileReader {
     public List<String> getFolderContents(String filePath) {
         List<String> childFilePaths = new ArrayList<>();
         try {
-            String anchorPath = root.toURI().getPath();
+            String anchorPath = getAnchorPath();
 
             FilePath parentFile = root.child(filePath);
+            ReportTreeSnapshot.Entry snapshotEntry = getSnapshotEntry(parentFile);
+            if(snapshotEntry != null || isCoveredBySnapshot(parentFile)) {
+                if(snapshotEntry != null && snapshotEntry.isDirectory()) {
+                    for(String childPath : snapshotEntry.getChildUriPaths()) {
+                        childFilePaths.add(FileUtil.createRelativeFilePath(anchorPath, childPath));
+                    }
+                }
+                return childFilePaths;
+            }
+
             for(FilePath childFile : parentFile.list()) {
                 String childPath = childFile.toURI().getPath();
                 String relativePath = FileUtil.createRelativeFilePath(anchorPath, childPath);
@@ -109,6 +257,9 @@ public class WatchrJenkinsFileReader implements IFileReader {
     public boolean exists(String filePath) {
         try {
             FilePath childFile = root.child(filePath);
+            if(isCoveredBySnapshot(childFile)) {
+                return getSnapshotEntry(childFile) != null;
+            }
             return childFile.exists();
         } catch(IOException e) {
             logger.logError("An error occurred reading the file at " + filePath, e);
@@ -123,6 +274,10 @@ public class WatchrJenkinsFileReader implements IFileReader {
     public boolean isDirectory(String filePath) {
         FilePath childFile = root.child(filePath);
         try {
+            if(isCoveredBySnapshot(childFile)) {
+                ReportTreeSnapshot.Entry snapshotEntry = getSnapshotEntry(childFile);
+                return snapshotEntry != null && snapshotEntry.isDirectory();
+            }
             return childFile.isDirectory();
         } catch(IOException e) {
             logger.logError("An error occurred reading the file at " + filePath, e);
@@ -137,6 +292,10 @@ public class WatchrJenkinsFileReader implements IFileReader {
     public boolean isFile(String filePath) {
         FilePath childFile = root.child(filePath);
         try {
+            if(isCoveredBySnapshot(childFile)) {
+                ReportTreeSnapshot.Entry snapshotEntry = getSnapshotEntry(childFile);
+                return snapshotEntry != null && !snapshotEntry.isDirectory();
+            }
             return !childFile.isDirectory();
         } catch(IOException e) {
             logger.logError("An error occurred reading the file at " + filePath, e);
@@ -146,4 +305,74 @@ public class WatchrJenkinsFileReader implements IFileReader {
         }
         return false;
     }    
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private String getAnchorPath() throws IOException, InterruptedException {
+        if(anchorPath == null) {
+            anchorPath = root.toURI().getPath();
+        }
+        return anchorPath;
+    }
+
+    private static synchronized ExecutorService getPrefetchPool(int parallelism) {
+        if(prefetchPool == null || prefetchPoolSize != parallelism) {
+            if(prefetchPool != null) {
+                // Reads already queued on the old pool still finish.
+                prefetchPool.shutdown();
+            }
+            prefetchPool = Executors.newFixedThreadPool(
+                parallelism, new NamingThreadFactory(new DaemonThreadFactory(), "Watchr report prefetch"));
+            prefetchPoolSize = parallelism;
+        }
+        return prefetchPool;
+    }
+
+    private static boolean reserve(long chars) {
+        while(true) {
+            long current = prefetchedChars.get();
+            if(current + chars > PREFETCH_CHAR_LIMIT) {
+                return false;
+            }
+            if(prefetchedChars.compareAndSet(current, current + chars)) {
+                return true;
+            }
+        }
+    }
+
+    private void prefetchFile(String filePath, long reservedChars) {
+        if(!reserve(reservedChars)) {
+            return;
+        }
+        long heldChars = 0;
+        try {
+            FilePath childFile = root.child(filePath);
+            String contents = childFile.readToString();
+            synchronized(prefetchedContents) {
+                if(!prefetchReleased) {
+                    prefetchedContents.put(ReportTreeSnapshot.normalize(childFile.getRemote()), contents);
+                    heldChars = contents.length();
+                }
+            }
+        } catch(IOException e) {
+            // Leave it for readFromFile to retry and report.
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            prefetchedChars.addAndGet(heldChars - reservedChars);
+        }
+    }
+
+    private boolean isCoveredBySnapshot(FilePath file) {
+        return treeSnapshot != null && treeSnapshot.covers(file.getRemote());
+    }
+
+    private ReportTreeSnapshot.Entry getSnapshotEntry(FilePath file) {
+        if(isCoveredBySnapshot(file)) {
+            return treeSnapshot.getEntry(file.getRemote());
+        }
+        return null;
+    }
 }
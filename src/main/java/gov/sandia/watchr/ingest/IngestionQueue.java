@@ -0,0 +1,418 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import gov.sandia.watchr.impl.WatchrJenkinsFileReader;
+import gov.sandia.watchr.impl.WatchrJenkinsLogger;
+import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import hudson.FilePath;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+/**
+ * A controller-wide queue of builds whose performance reports are waiting to
+ * be ingested. Builds that publish asynchronously copy their reports into
+ * their build directory, add a task here, and release their executor without
+ * waiting for the reports to be parsed.<br>
+ * <br>
+ * A fixed pool of worker threads drains the queue. The queue holds a bounded
+ * number of waiting tasks; once it is full, {@link #offer(IngestionTask)}
+ * refuses new tasks, and the build ingests its own reports instead.<br>
+ * <br>
+ * Waiting and running tasks are written to a file in the Jenkins root
+ * directory whenever the queue changes, and are queued again when Jenkins
+ * starts. A task's copied reports are deleted only once the queue file no
+ * longer lists it, and a task whose reports are gone is not restored, since
+ * either it finished or the {@link gov.sandia.watchr.model.DatabaseJournal}
+ * took its reports over when it was applied.
+ */
+public class IngestionQueue {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String QUEUE_FILE_NAME = "watchrIngestionQueue.json";
+    public static final String QUEUED_REPORTS_DIR = "watchrQueuedReports";
+
+    private static final Logger LOGGER = Logger.getLogger(IngestionQueue.class.getName());
+
+    private static IngestionQueue instance;
+
+    private final File file;
+    private final int workerCount;
+    private final LinkedList<IngestionTask> pendingTasks = new LinkedList<>();
+    private final List<IngestionTask> runningTasks = new ArrayList<>();
+    private final ExecutorService workers;
+
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private volatile long lastLagMillis;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    IngestionQueue(File file, int workerCount) {
+        this.file = file;
+        this.workerCount = workerCount;
+        this.workers = Executors.newFixedThreadPool(
+            workerCount, new NamingThreadFactory(new DaemonThreadFactory(), "Watchr ingestion"));
+    }
+
+    public static synchronized IngestionQueue get() {
+        if(instance == null) {
+            File queueFile = new File(Jenkins.get().getRootDir(), QUEUE_FILE_NAME);
+            instance = new IngestionQueue(queueFile, getDescriptor().getIngestionWorkers());
+            instance.restore();
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the queue once jobs are loaded, so that tasks left over from
+     * before a restart are picked up without waiting for the next build.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void resumeQueuedIngestion() {
+        get();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int getCapacity() {
+        return getDescriptor().getIngestionQueueCapacity();
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingTasks.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return runningTasks.size();
+    }
+
+    public synchronized List<IngestionTask> getPendingTasks() {
+        return new ArrayList<>(pendingTasks);
+    }
+
+    public synchronized List<IngestionTask> getRunningTasks() {
+        return new ArrayList<>(runningTasks);
+    }
+
+    public long getCompletedCount() {
+        return completedTasks.get();
+    }
+
+    public long getFailedCount() {
+        return failedTasks.get();
+    }
+
+    /**
+     * @return How long the oldest waiting task has been waiting, in milliseconds.
+     */
+    public synchronized long getOldestPendingAgeMillis() {
+        return pendingTasks.isEmpty() ? 0 : pendingTasks.getFirst().getAgeMillis();
+    }
+
+    /**
+     * @return The time between queueing and finishing the most recently
+     * finished task, in milliseconds.
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    /**
+     * @return The average time between queueing and finishing a task, over
+     * every task finished since Jenkins started, in milliseconds.
+     */
+    public long getAverageLagMillis() {
+        long finished = completedTasks.get() + failedTasks.get();
+        return finished > 0 ? totalLagMillis.get() / finished : 0;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * Adds a task to the end of the queue, unless the queue is full.
+     * @param task The task.
+     * @return True if the task was queued. False if the queue is full, in
+     * which case the caller should ingest the reports itself.
+     */
+    public synchronized boolean offer(IngestionTask task) {
+        if(pendingTasks.size() >= getCapacity()) {
+            return false;
+        }
+        pendingTasks.addLast(task);
+        persist();
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Removes waiting tasks for a job that has been deleted, or for one of its
+     * builds.
+     * @param jobFullName The job's full name.
+     * @param buildNumber The build number, or 0 to remove every task for the job.
+     * @return The number of tasks removed.
+     */
+    public synchronized int removeTasks(String jobFullName, int buildNumber) {
+        int sizeBefore = pendingTasks.size();
+        pendingTasks.removeIf(task ->
+            task.getJobFullName().equals(jobFullName) && (buildNumber == 0 || task.getBuildNumber() == buildNumber));
+        int removed = sizeBefore - pendingTasks.size();
+        if(removed > 0) {
+            persist();
+        }
+        return removed;
+    }
+
+    /**
+     * Points waiting and running tasks for a job that has been renamed or
+     * moved at its new name, so that they are restored under that name.
+     * @param oldFullName The job's full name before it was renamed or moved.
+     * @param newFullName The job's new full name.
+     */
+    public synchronized void renameTasks(String oldFullName, String newFullName) {
+        boolean renamed = false;
+        List<IngestionTask> tasks = new ArrayList<>(runningTasks);
+        tasks.addAll(pendingTasks);
+        for(IngestionTask task : tasks) {
+            if(task.getJobFullName().equals(oldFullName)) {
+                task.setJobFullName(newFullName);
+                renamed = true;
+            }
+        }
+        if(renamed) {
+            persist();
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static PerformanceRecorder.DescriptorImpl getDescriptor() {
+        return Jenkins.get().getDescriptorByType(PerformanceRecorder.DescriptorImpl.class);
+    }
+
+    private void start() {
+        for(int i = 0; i < workerCount; i++) {
+            workers.submit(this::work);
+        }
+    }
+
+    private void work() {
+        while(!Thread.currentThread().isInterrupted()) {
+            IngestionTask task;
+            try {
+                task = take();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // The build is looked up once, so that the task finishes with the
+            // same build even if its job is renamed or moved while it runs.
+            Run<?,?> build = getBuild(task);
+            boolean succeeded = false;
+            try {
+                succeeded = process(task, build);
+            } finally {
+                finish(task, succeeded);
+                deleteQueuedReports(task, build);
+            }
+        }
+    }
+
+    synchronized IngestionTask take() throws InterruptedException {
+        while(pendingTasks.isEmpty()) {
+            wait();
+        }
+        IngestionTask task = pendingTasks.removeFirst();
+        runningTasks.add(task);
+        return task;
+    }
+
+    private synchronized void finish(IngestionTask task, boolean succeeded) {
+        runningTasks.remove(task);
+        persist();
+
+        long lag = task.getAgeMillis();
+        lastLagMillis = lag;
+        totalLagMillis.addAndGet(lag);
+        if(succeeded) {
+            completedTasks.incrementAndGet();
+        } else {
+            failedTasks.incrementAndGet();
+        }
+    }
+
+    private boolean process(IngestionTask task, Run<?,?> build) {
+        if(build == null) {
+            LOGGER.log(Level.WARNING, "Dropping queued performance reports for {0} #{1}, which no longer exists (watchr-jenkins)",
+                new Object[]{ task.getJobFullName(), task.getBuildNumber() });
+            return false;
+        }
+
+        ILogger logger = new WatchrJenkinsLogger(WatchrJenkinsApp.getLogForBuild(build));
+        FilePath reportsRoot = new FilePath(new File(build.getRootDir(), QUEUED_REPORTS_DIR));
+        try {
+            WatchrJenkinsFileReader fileReader = new WatchrJenkinsFileReader(reportsRoot, logger);
+            ReportIngester ingester =
+                new ReportIngester(false, task.isSkipIngestedReports(), task.getReportFilter(), 1);
+            logger.logInfo("Ingesting queued performance reports after waiting " + task.getAgeMillis() + " ms (watchr-jenkins)");
+            ingester.ingest(
+                build, fileReader, reportsRoot.child(task.getReportsLocation()), reportsRoot,
+                task.getConfigContents(), logger);
+            return true;
+        } catch (IOException e1) {
+            logger.logError("An error occurred reading the file path: ", e1);
+        } catch(WatchrParseException e2) {
+            logger.logError("An error occurred extracting new plot data: ", e2.getOriginalException());
+        } catch (InterruptedException e3) {
+            logger.logError("An interruption exception occurred: ", e3);
+            Thread.currentThread().interrupt();
+        } catch (Exception e4) {
+            logger.logError("A generic exception occurred: ", e4);
+        }
+        return false;
+    }
+
+    /**
+     * Deletes a task's copied reports. Must be called only once the task is
+     * no longer in the queue file, so that a restart never queues a task
+     * whose reports are gone.
+     */
+    private void deleteQueuedReports(IngestionTask task, Run<?,?> build) {
+        if(build == null) {
+            return;
+        }
+        // The build's directory moves along with its job.
+        File reportsRoot = new File(build.getRootDir(), QUEUED_REPORTS_DIR);
+        if(!reportsRoot.exists()) {
+            return;
+        }
+        try {
+            new FilePath(reportsRoot).deleteRecursive();
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete the queued performance reports for " + task.getJobFullName() + " (watchr-jenkins)", e);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Run<?,?> getBuild(IngestionTask task) {
+        Job<?,?> job = Jenkins.get().getItemByFullName(task.getJobFullName(), Job.class);
+        return job != null ? job.getBuildByNumber(task.getBuildNumber()) : null;
+    }
+
+    /**
+     * @return The directory holding a task's copied reports, or null if its
+     * build no longer exists.
+     */
+    File getQueuedReportsRoot(IngestionTask task) {
+        Run<?,?> build = getBuild(task);
+        return build != null ? new File(build.getRootDir(), QUEUED_REPORTS_DIR) : null;
+    }
+
+    /**
+     * @return True if a restored task must not be run again. Its reports are
+     * deleted once it finishes, and an ingest that was journaled hands its
+     * reports over to the journal as it is applied. A task that was applied
+     * but not journaled still has its reports, and runs again, skipping any
+     * reports the report manifest already records.
+     */
+    private boolean isApplied(IngestionTask task) {
+        File reportsRoot = getQueuedReportsRoot(task);
+        return reportsRoot != null && !reportsRoot.exists();
+    }
+
+    /////////////////
+    // PERSISTENCE //
+    /////////////////
+
+    synchronized void restore() {
+        if(!file.exists()) {
+            return;
+        }
+        try(Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            IngestionTask[] tasks = new Gson().fromJson(reader, IngestionTask[].class);
+            if(tasks != null) {
+                // Tasks that were running when Jenkins stopped are run again,
+                // unless they were applied. They were already accepted once, so
+                // they are restored regardless of the queue's capacity.
+                int skipped = 0;
+                for(IngestionTask task : tasks) {
+                    if(isApplied(task)) {
+                        skipped++;
+                    } else {
+                        pendingTasks.add(task);
+                    }
+                }
+                LOGGER.log(Level.INFO, "Restored {0} queued Watchr ingestion tasks, skipping {1} already applied (watchr-jenkins)",
+                    new Object[]{ pendingTasks.size(), skipped });
+            }
+        } catch(IOException | JsonParseException e) {
+            LOGGER.log(Level.WARNING, "Could not restore the Watchr ingestion queue (watchr-jenkins)", e);
+        }
+    }
+
+    private synchronized void persist() {
+        List<IngestionTask> tasks = new ArrayList<>(runningTasks);
+        tasks.addAll(pendingTasks);
+
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try(Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                new Gson().toJson(tasks.toArray(new IngestionTask[0]), writer);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save the Watchr ingestion queue (watchr-jenkins)", e);
+        }
+    }
+}
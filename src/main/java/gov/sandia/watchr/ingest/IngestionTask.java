@@ -0,0 +1,110 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.ingest;
+
+import gov.sandia.watchr.impl.ReportFilter;
+import hudson.model.Run;
+
+/**
+ * A request to ingest one build's performance reports, waiting in the
+ * {@link IngestionQueue}. The reports themselves have already been copied
+ * into the build's directory on the controller, so a task carries only what
+ * is needed to find them again and parse them.
+ */
+public class IngestionTask {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private volatile String jobFullName;
+    private final int buildNumber;
+    private final String reportsLocation;
+    private final String configContents;
+    private final boolean skipIngestedReports;
+    private final ReportFilter reportFilter;
+    private final long queuedTime;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    /**
+     * @param build The build that produced the reports.
+     * @param reportsLocation The report directory, relative to the copied
+     * report root.
+     * @param configContents The Watchr configuration.
+     * @param skipIngestedReports Whether to skip report files whose contents
+     * were already ingested.
+     * @param reportFilter Narrows the report files that are read.
+     */
+    public IngestionTask(
+            Run<?,?> build, String reportsLocation, String configContents,
+            boolean skipIngestedReports, ReportFilter reportFilter) {
+        this.jobFullName = build.getParent().getFullName();
+        this.buildNumber = build.getNumber();
+        this.reportsLocation = reportsLocation;
+        this.configContents = configContents;
+        this.skipIngestedReports = skipIngestedReports;
+        this.reportFilter = reportFilter;
+        this.queuedTime = System.currentTimeMillis();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getJobFullName() {
+        return jobFullName;
+    }
+
+    public int getBuildNumber() {
+        return buildNumber;
+    }
+
+    public String getReportsLocation() {
+        return reportsLocation;
+    }
+
+    public String getConfigContents() {
+        return configContents;
+    }
+
+    public boolean isSkipIngestedReports() {
+        return skipIngestedReports;
+    }
+
+    public ReportFilter getReportFilter() {
+        return reportFilter != null ? reportFilter : ReportFilter.NONE;
+    }
+
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
+    /**
+     * @return How long this task has been waiting since it was queued, in milliseconds.
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - queuedTime;
+    }
+
+    /////////////
+    // SETTERS //
+    /////////////
+
+    /**
+     * Points this task at its job's new name, once the job has been renamed
+     * or moved. The task is renamed in place, so that the queue still finds
+     * it if it is already running.
+     * @param jobFullName The job's new full name.
+     */
+    void setJobFullName(String jobFullName) {
+        this.jobFullName = jobFullName;
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.ingest;
+
+import java.io.IOException;
+import java.util.List;
+
+import gov.sandia.watchr.WatchrCoreApp;
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.actions.PerformanceResultAction;
+import gov.sandia.watchr.impl.ReportFilter;
+import gov.sandia.watchr.impl.ReportTreeScanner;
+import gov.sandia.watchr.impl.ReportTreeSnapshot;
+import gov.sandia.watchr.impl.WatchrJenkinsFileReader;
+import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.DatabaseIndex;
+import gov.sandia.watchr.model.DatabaseJournal;
+import gov.sandia.watchr.model.DatabaseWriteLock;
+import gov.sandia.watchr.model.PerformanceResultSummary;
+import gov.sandia.watchr.model.ReportManifest;
+import gov.sandia.watchr.parse.WatchrParseException;
+import gov.sandia.watchr.util.HashUtil;
+import hudson.FilePath;
+import hudson.model.Job;
+import hudson.model.Run;
+
+/**
+ * Reads a build's performance reports into its job's database and saves the
+ * database. This is the part of publishing performance reports that does not
+ * depend on the build still being in progress, so it is shared by the
+ * {@link gov.sandia.watchr.buildsteps.PerformanceRecorder} and the
+ * {@link IngestionQueue}.
+ */
+public class ReportIngester {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final boolean scanReports;
+    private final boolean skipIngestedReports;
+    private final ReportFilter reportFilter;
+    private final int readerThreads;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    /**
+     * @param scanReports Whether to scan the report directory in a single call
+     * before parsing, even if nothing else requires it.
+     * @param skipIngestedReports Whether to skip report files whose contents
+     * were already ingested.
+     * @param reportFilter Narrows the report files that are read.
+     * @param readerThreads The number of report files that may be transferred
+     * from a build agent at once.
+     */
+    public ReportIngester(boolean scanReports, boolean skipIngestedReports, ReportFilter reportFilter, int readerThreads) {
+        this.scanReports = scanReports;
+        this.skipIngestedReports = skipIngestedReports;
+        this.reportFilter = reportFilter;
+        this.readerThreads = readerThreads;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * @param build The build that produced the reports.
+     * @param fileReader A reader rooted at the directory that report paths are
+     * relative to.
+     * @param reportsFilePath The performance report directory.
+     * @param copiedReportsRoot The root of a private copy of the reports on the
+     * controller, which the {@link DatabaseJournal} may take over, or null if
+     * the reports are being read from where the build left them.
+     * @param configContents The Watchr configuration to parse the reports with.
+     * @param logger The logger for the build.
+     * @return True if new reports were added to the database.
+     */
+    public boolean ingest(
+            Run<?,?> build, WatchrJenkinsFileReader fileReader, FilePath reportsFilePath,
+            FilePath copiedReportsRoot, String configContents, ILogger logger) throws IOException, InterruptedException, WatchrParseException {
+        try {
+            return ingestReports(build, fileReader, reportsFilePath, copiedReportsRoot, configContents, logger);
+        } finally {
+            // Prefetched reports that watchr-core never asked for.
+            fileReader.releasePrefetched();
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private boolean ingestReports(
+            Run<?,?> build, WatchrJenkinsFileReader fileReader, FilePath reportsFilePath,
+            FilePath copiedReportsRoot, String configContents, ILogger logger) throws IOException, InterruptedException, WatchrParseException {
+
+        String dbName = WatchrJenkinsApp.getConfigContextOrDefault(build.getParent()).getDatabaseName();
+
+        ReportTreeSnapshot treeSnapshot = null;
+        ReportManifest manifest = null;
+        String configHash = null;
+        int skippedReports = 0;
+        if(scanReports || skipIngestedReports || reportFilter.isActive()) {
+            treeSnapshot = reportsFilePath.act(new ReportTreeScanner(skipIngestedReports, reportFilter));
+            logger.logInfo("Scanned " + treeSnapshot.getFileCount() + " report files (watchr-jenkins)");
+            if(treeSnapshot.getExcludedFileCount() > 0) {
+                logger.logWarning(treeSnapshot.getExcludedFileCount() + " report files exceeded the configured size or count limits and will not be read");
+            }
+            if(treeSnapshot.getExpiredFileCount() > 0) {
+                logger.logInfo("Ignoring " + treeSnapshot.getExpiredFileCount() + " report files older than the retention period (watchr-jenkins)");
+            }
+
+            if(skipIngestedReports) {
+                // Concurrent builds may record files in the meantime, so this copy
+                // is only read. The manifest is loaded again before it is updated.
+                manifest = ReportManifest.load(build.getParent());
+                configHash = HashUtil.sha256(configContents);
+                skippedReports = manifest.removeIngestedFiles(treeSnapshot, configHash);
+                logger.logInfo("Skipping " + skippedReports + " report files that were already ingested (watchr-jenkins)");
+            }
+            fileReader.setTreeSnapshot(treeSnapshot);
+
+            if(reportsFilePath.isRemote()) {
+                fileReader.prefetch(treeSnapshot, readerThreads);
+            }
+        }
+
+        String filePathString = reportsFilePath.toURI().getPath();
+        List<String> childFiles = fileReader.getFolderContents(filePathString);
+        if(childFiles.isEmpty()) {
+            if(skippedReports > 0) {
+                logger.logInfo("All performance reports at path " + filePathString + " were already ingested (watchr-jenkins)");
+            } else {
+                logger.logError("No performance reports were located at path " + filePathString);
+            }
+            return false;
+        }
+
+        boolean journaled = copiedReportsRoot != null && DatabaseJournal.isEnabled();
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(build.getParent());
+        long ticket;
+        DatabaseIndex index;
+        writeLock.lock();
+        try {
+            // The database may have been unloaded while the reports were scanned.
+            WatchrJenkinsApp.loadDatabase(build.getParent());
+            WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(build.getParent());
+            coreApp.setLogger(logger);
+            coreApp.setFileReader(fileReader);
+            logger.logInfo("Requesting new plots from " + filePathString + " for db " + dbName + " (watchr-jenkins)");
+            try {
+                coreApp.addToDatabase(dbName, filePathString, configContents);
+            } catch(WatchrParseException | RuntimeException e) {
+                // Some of the reports may have been added before the failure.
+                DatabaseCache.invalidate(build.getParent());
+                throw e;
+            }
+            DatabaseCache.recordChange(build.getParent());
+            index = DatabaseIndex.of(build.getParent(), coreApp, dbName);
+            if(treeSnapshot != null) {
+                // Files that could not be read reached watchr-core empty, so they are
+                // neither journaled nor recorded as ingested.
+                int unreadableReports = treeSnapshot.removeFiles(fileReader.getUnreadablePaths());
+                if(unreadableReports > 0) {
+                    logger.logWarning(unreadableReports + " report files could not be read and will be read again by the next build");
+                }
+            }
+            // Recorded before journaling, so that the change is never dropped
+            // from memory unsaved, even if journaling is interrupted.
+            ticket = writeLock.recordChange();
+            if(journaled) {
+                try {
+                    logger.logInfo("Journaling new plots... (watchr-jenkins)");
+                    DatabaseJournal.forJob(build.getParent()).appendIngest(copiedReportsRoot, reportsFilePath, treeSnapshot, configContents);
+                } catch(IOException e) {
+                    logger.logError("Could not journal the new plots, so the database will be saved instead: ", e);
+                    journaled = false;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        if(!journaled) {
+            writeLock.commit(ticket, logger);
+        }
+        DatabaseIndex.update(build.getParent(), index);
+        recordSummary(build, PerformanceResultSummary.of(index), logger);
+        if(manifest != null) {
+            // The ingested files are only recorded once their plots are durable,
+            // so that a failed save never causes them to be skipped later.
+            recordIngestedFiles(build.getParent(), writeLock, treeSnapshot, configHash);
+        }
+        return true;
+    }
+
+    private void recordIngestedFiles(
+            Job<?,?> job, DatabaseWriteLock writeLock, ReportTreeSnapshot treeSnapshot, String configHash) throws IOException {
+        // Concurrent builds of the job update the same manifest.
+        writeLock.lock();
+        try {
+            ReportManifest currentManifest = ReportManifest.load(job);
+            currentManifest.recordIngestedFiles(treeSnapshot, configHash);
+            currentManifest.save();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recordSummary(Run<?,?> build, PerformanceResultSummary summary, ILogger logger) {
+        PerformanceResultAction action = build.getAction(PerformanceResultAction.class);
+        if(action == null) {
+            return;
+        }
+        action.setSummary(summary);
+        try {
+            // The build may already have finished, as it has for queued ingests.
+            build.save();
+        } catch(IOException e) {
+            logger.logError("An error occurred saving the build: ", e);
+        }
+    }
+}
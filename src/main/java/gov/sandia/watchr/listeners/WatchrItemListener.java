@@ -0,0 +1,56 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.listeners;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.ingest.IngestionQueue;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Keeps Watchr's in-memory state in step with jobs that are deleted, renamed
+ * or moved. A job's database, manifest and journal all live in the job's
+ * directory, so Jenkins deletes or moves them along with the job. What is
+ * left to do is to drop anything Watchr holds in memory under the job's old
+ * name, and to deal with builds still waiting in the ingestion queue.
+ */
+@Extension
+public class WatchrItemListener extends ItemListener {
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public void onDeleted(Item item) {
+        if(item instanceof Job) {
+            WatchrJenkinsApp.forgetJob((Job<?,?>) item, item.getFullName());
+            getQueue().removeTasks(item.getFullName(), 0);
+        }
+    }
+
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+        if(item instanceof Job) {
+            // The database is connected under the job's old name, so it is
+            // dropped rather than saved, and read again under the new name.
+            WatchrJenkinsApp.forgetJob((Job<?,?>) item, oldFullName);
+            getQueue().renameTasks(oldFullName, newFullName);
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    IngestionQueue getQueue() {
+        return IngestionQueue.get();
+    }
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.listeners;
+
+import gov.sandia.watchr.ingest.IngestionQueue;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Drops queued ingestion work for builds that are deleted, whether by hand or
+ * by the job's build discarder, before their reports are ingested. The
+ * reports copied for the queue live in the build's directory and are deleted
+ * along with it.
+ */
+@Extension
+@SuppressWarnings("rawtypes")
+public class WatchrRunListener extends RunListener<Run> {
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public void onDeleted(Run run) {
+        getQueue().removeTasks(run.getParent().getFullName(), run.getNumber());
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    IngestionQueue getQueue() {
+        return IngestionQueue.get();
+    }
+}
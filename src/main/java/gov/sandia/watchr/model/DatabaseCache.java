@@ -0,0 +1,298 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.model.Job;
+
+/**
+ * Keeps track of which jobs' databases are connected and current in memory,
+ * so that a database is read from disk once rather than every time a page or
+ * a build asks for it.<br>
+ * <br>
+ * Each job's database has a generation number, which goes up every time the
+ * database changes. Changes made through the job's
+ * {@link gov.sandia.watchr.WatchrCoreApp} keep the loaded copy current. Only
+ * {@link #invalidate(Job)} forces the next load to read the database from
+ * disk again.<br>
+ * <br>
+ * The time each database was last used is tracked as well, so that databases
+ * nobody has looked at for a while can be unloaded to free the heap. So is an
+ * estimate of how much heap each loaded database takes, which is the size of
+ * its files on disk, so that the least recently used databases can be
+ * unloaded once all of them together grow past a budget.<br>
+ * <br>
+ * All of a job's entries are updated while holding its {@link DatabaseWriteLock}.
+ */
+public class DatabaseCache {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong loads = new AtomicLong();
+    private static final AtomicLong totalLoadMillis = new AtomicLong();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private DatabaseCache() {}
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    /**
+     * @param job The job.
+     * @return The current generation of the job's database.
+     */
+    public static long getGeneration(Job<?,?> job) {
+        return getEntry(job).getGeneration();
+    }
+
+    /**
+     * @param job The job.
+     * @return True if the job's database is loaded and current in memory.
+     */
+    public static boolean isCurrent(Job<?,?> job) {
+        return getEntry(job).isCurrent();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The average time taken to read a database from disk, in milliseconds.
+     */
+    public static long getAverageLoadMillis() {
+        long loadCount = loads.get();
+        return loadCount > 0 ? totalLoadMillis.get() / loadCount : 0;
+    }
+
+    /**
+     * @return The estimated heap taken by every loaded database, in bytes.
+     */
+    public static long getEstimatedBytes() {
+        long estimatedBytes = 0;
+        for(Entry entry : entries.values()) {
+            estimatedBytes += entry.getLoadedBytes();
+        }
+        return estimatedBytes;
+    }
+
+    /**
+     * @return The full names of the jobs whose databases are loaded, least
+     * recently used first.
+     */
+    public static List<String> getLeastRecentlyUsedJobNames() {
+        List<Map.Entry<String, Entry>> loaded = new ArrayList<>();
+        for(Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if(entry.getValue().isCurrent()) {
+                loaded.add(entry);
+            }
+        }
+        loaded.sort((entry1, entry2) ->
+            Long.compare(entry1.getValue().getLastAccessTime(), entry2.getValue().getLastAccessTime()));
+
+        List<String> jobNames = new ArrayList<>();
+        for(Map.Entry<String, Entry> entry : loaded) {
+            jobNames.add(entry.getKey());
+        }
+        return jobNames;
+    }
+
+    /**
+     * @param idleMillis How long a database must have gone unused.
+     * @return The full names of the jobs whose databases are loaded, but have
+     * not been used for at least the given time.
+     */
+    public static List<String> getIdleJobNames(long idleMillis) {
+        long now = System.currentTimeMillis();
+        List<String> idleJobNames = new ArrayList<>();
+        for(Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if(entry.getValue().isIdle(now, idleMillis)) {
+                idleJobNames.add(entry.getKey());
+            }
+        }
+        return idleJobNames;
+    }
+
+    public static int getLoadedCount() {
+        int loaded = 0;
+        for(Entry entry : entries.values()) {
+            if(entry.isCurrent()) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * Checks whether the job's database must be read from disk, and counts
+     * the check as a cache hit or miss.
+     * @param job The job.
+     * @return True if the database must be connected.
+     */
+    public static boolean needsLoad(Job<?,?> job) {
+        Entry entry = getEntry(job);
+        entry.touch();
+        if(entry.isCurrent()) {
+            hits.incrementAndGet();
+            return false;
+        }
+        misses.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records that the job's database has just been read from disk.
+     * @param job The job.
+     * @param estimatedBytes The estimated heap taken by the database.
+     * @param loadMillis How long reading the database took.
+     */
+    public static void markLoaded(Job<?,?> job, long estimatedBytes, long loadMillis) {
+        getEntry(job).markLoaded(estimatedBytes);
+        loads.incrementAndGet();
+        totalLoadMillis.addAndGet(loadMillis);
+    }
+
+    /**
+     * Records a change that was made to the database held in memory. The
+     * loaded copy stays current.
+     * @param job The job.
+     */
+    public static void recordChange(Job<?,?> job) {
+        getEntry(job).recordChange();
+    }
+
+    /**
+     * Records that the job's database has been dropped from memory. Its
+     * generation moves on, so that nothing rendered from the dropped copy is
+     * taken for the copy that is loaded next.
+     * @param job The job.
+     */
+    public static void markUnloaded(Job<?,?> job) {
+        getEntry(job).markUnloaded();
+    }
+
+    /**
+     * Counts a database that was unloaded to keep within the heap budget.
+     */
+    public static void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Forgets everything known about a job that has been deleted, renamed or moved.
+     * @param jobFullName The job's full name before it was deleted, renamed or moved.
+     */
+    public static void forget(String jobFullName) {
+        entries.remove(jobFullName);
+    }
+
+    /**
+     * Records that the database held in memory can no longer be trusted, so
+     * that the next load reads it from disk again.
+     * @param job The job.
+     */
+    public static void invalidate(Job<?,?> job) {
+        getEntry(job).invalidate();
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static Entry getEntry(Job<?,?> job) {
+        return entries.computeIfAbsent(job.getFullName(), k -> new Entry());
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    private static class Entry {
+        private long generation;
+        private long loadedGeneration = -1;
+        private long lastAccessTime;
+        private long estimatedBytes;
+
+        private synchronized long getGeneration() {
+            return generation;
+        }
+
+        private synchronized boolean isCurrent() {
+            return loadedGeneration == generation;
+        }
+
+        private synchronized long getLastAccessTime() {
+            return lastAccessTime;
+        }
+
+        private synchronized long getLoadedBytes() {
+            return isCurrent() ? estimatedBytes : 0;
+        }
+
+        private synchronized boolean isIdle(long now, long idleMillis) {
+            return isCurrent() && now - lastAccessTime >= idleMillis;
+        }
+
+        private synchronized void touch() {
+            lastAccessTime = System.currentTimeMillis();
+        }
+
+        private synchronized void markLoaded(long estimatedBytes) {
+            loadedGeneration = generation;
+            this.estimatedBytes = estimatedBytes;
+            touch();
+        }
+
+        private synchronized void markUnloaded() {
+            generation++;
+            loadedGeneration = -1;
+            estimatedBytes = 0;
+        }
+
+        private synchronized void recordChange() {
+            touch();
+            boolean current = isCurrent();
+            generation++;
+            if(current) {
+                loadedGeneration = generation;
+            }
+        }
+
+        private synchronized void invalidate() {
+            generation++;
+        }
+    }
+}
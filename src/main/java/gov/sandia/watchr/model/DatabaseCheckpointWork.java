@@ -0,0 +1,86 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import hudson.Extension;
+import hudson.init.Terminator;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Periodically folds each job's {@link DatabaseJournal} into its database,
+ * once the oldest journaled change has waited for the configured checkpoint
+ * interval. Journals are also folded when Jenkins shuts down.
+ */
+@Extension
+public class DatabaseCheckpointWork extends AsyncPeriodicWork {
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public DatabaseCheckpointWork() {
+        super("Watchr database checkpoint");
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        PerformanceRecorder.DescriptorImpl descriptor =
+            Jenkins.get().getDescriptorByType(PerformanceRecorder.DescriptorImpl.class);
+        long intervalMillis = descriptor.getCheckpointIntervalMinutes() * MIN;
+        for(DatabaseJournal journal : getDueJournals(intervalMillis, System.currentTimeMillis())) {
+            journal.checkpoint(WatchrJenkinsApp.getLoggerForJob(journal.getJob()));
+        }
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    @Terminator
+    public static void checkpointAll() {
+        for(DatabaseJournal journal : DatabaseJournal.getJournals()) {
+            journal.checkpoint(WatchrJenkinsApp.getLoggerForJob(journal.getJob()));
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * @param intervalMillis How long the oldest journaled change may wait.
+     * @param now The current time.
+     * @return The journals whose oldest record has waited for the interval.
+     */
+    static List<DatabaseJournal> getDueJournals(long intervalMillis, long now) {
+        List<DatabaseJournal> dueJournals = new ArrayList<>();
+        for(DatabaseJournal journal : DatabaseJournal.getJournals()) {
+            long oldestRecordTime = journal.getOldestRecordTime();
+            if(oldestRecordTime > 0 && now - oldestRecordTime >= intervalMillis) {
+                dueJournals.add(journal);
+            }
+        }
+        return dueJournals;
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.util.function.Function;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Job;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Periodically drops the databases of jobs that nobody has viewed or
+ * published to for a while, so that the controller's heap holds only the
+ * databases that are in use.
+ */
+@Extension
+public class DatabaseEvictionWork extends AsyncPeriodicWork {
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public DatabaseEvictionWork() {
+        super("Watchr database eviction");
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public long getRecurrencePeriod() {
+        return 5 * MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        PerformanceRecorder.DescriptorImpl descriptor =
+            Jenkins.get().getDescriptorByType(PerformanceRecorder.DescriptorImpl.class);
+        int idleMinutes = descriptor.getDatabaseIdleMinutes();
+        if(idleMinutes <= 0) {
+            return;
+        }
+        unloadIdleDatabases(idleMinutes * MIN, jobFullName -> Jenkins.get().getItemByFullName(jobFullName, Job.class));
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    /**
+     * @param idleMillis How long a database must have gone unused.
+     * @param jobLookup Finds a job by its full name, or returns null if the
+     * job no longer exists.
+     * @return The number of databases that were unloaded.
+     */
+    static int unloadIdleDatabases(long idleMillis, Function<String, Job<?,?>> jobLookup) {
+        int unloaded = 0;
+        for(String jobFullName : DatabaseCache.getIdleJobNames(idleMillis)) {
+            Job<?,?> job = jobLookup.apply(jobFullName);
+            if(job != null && WatchrJenkinsApp.unloadDatabase(job)) {
+                unloaded++;
+            }
+        }
+        return unloaded;
+    }
+}
@@ -0,0 +1,291 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.WatchrCoreApp;
+import gov.sandia.watchr.WatchrJenkinsApp;
+import hudson.model.Job;
+
+/**
+ * A persisted summary of a job's database: its categories, and how many of
+ * its plots there are and how many are failing. Working these out means
+ * walking the whole database, so they are worked out once after each change,
+ * while the job's {@link DatabaseWriteLock} is held, and then read from here
+ * by the project page and build health without touching the database.<br>
+ * <br>
+ * Each index remembers the {@link DatabaseCache} generation it was taken at,
+ * so a writer that finishes saving late cannot replace a newer index with
+ * an older one.<br>
+ * <br>
+ * A saved index also remembers the size and modification time of the
+ * database files it was saved beside. If Jenkins stops after a database is
+ * saved but before its index is, the two no longer match, and the index is
+ * rebuilt from the database.
+ */
+public class DatabaseIndex {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String INDEX_FILE_NAME = "watchrDatabaseIndex.json";
+
+    private static final ConcurrentMap<String, DatabaseIndex> indexes = new ConcurrentHashMap<>();
+
+    private transient long generation;
+
+    private Set<String> categories;
+    private int plotCount;
+    private int failedPlotCount;
+    private String databaseFingerprint;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    DatabaseIndex(Set<String> categories, int plotCount, int failedPlotCount, long generation) {
+        this.categories = categories;
+        this.plotCount = plotCount;
+        this.failedPlotCount = failedPlotCount;
+        this.generation = generation;
+    }
+
+    /**
+     * Indexes a database held in memory. Must be called while holding the
+     * job's {@link DatabaseWriteLock}, right after the database has changed or
+     * been loaded.
+     * @param job The job.
+     * @param coreApp The job's core app.
+     * @param dbName The database name.
+     * @return The index.
+     */
+    public static DatabaseIndex of(Job<?,?> job, WatchrCoreApp coreApp, String dbName) {
+        Set<String> databaseCategories = coreApp.getDatabaseCategories(dbName);
+        return new DatabaseIndex(
+            databaseCategories != null ? new LinkedHashSet<>(databaseCategories) : new LinkedHashSet<>(),
+            coreApp.getPlotsSize(dbName),
+            coreApp.getFailedPlotsSize(dbName),
+            DatabaseCache.getGeneration(job));
+    }
+
+    /**
+     * Returns the job's index, reading it from disk, or indexing the database
+     * if it has never been indexed.
+     * @param job The job.
+     * @return The index.
+     */
+    public static DatabaseIndex forJob(Job<?,?> job) {
+        DatabaseIndex index = indexes.get(job.getFullName());
+        if(index != null) {
+            return index;
+        }
+
+        index = read(job);
+        if(index != null) {
+            DatabaseIndex existing = indexes.putIfAbsent(job.getFullName(), index);
+            return existing != null ? existing : index;
+        }
+
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        try {
+            WatchrJenkinsApp.loadDatabase(job);
+            index = of(job, WatchrJenkinsApp.getAppForJob(job), WatchrJenkinsApp.getDatabaseName(job));
+            update(job, index);
+            return indexes.get(job.getFullName());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the job's index in memory, unless a newer one has already been
+     * recorded. Used when journaled changes have just been replayed onto a
+     * database read from disk, so that its saved index is out of date.
+     * @param job The job.
+     * @param index The new index.
+     * @return True if the index was replaced.
+     */
+    public static boolean record(Job<?,?> job, DatabaseIndex index) {
+        DatabaseIndex current = indexes.merge(job.getFullName(), index,
+            (oldIndex, newIndex) -> newIndex.generation >= oldIndex.generation ? newIndex : oldIndex);
+        return current == index;
+    }
+
+    /**
+     * Replaces the job's index, unless a newer one has already been recorded,
+     * and saves it. Call this once the change the index reflects is safely
+     * on disk, whether saved or journaled.<br>
+     * <br>
+     * The job's {@link DatabaseWriteLock} is taken while the index is saved,
+     * so that an older index is never written over a newer one, while jobs
+     * never wait on each other.
+     * @param job The job.
+     * @param index The new index.
+     */
+    public static void update(Job<?,?> job, DatabaseIndex index) {
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        try {
+            if(!record(job, index)) {
+                return;
+            }
+            try {
+                write(job, index);
+            } catch(IOException e) {
+                // The index is rebuilt from the database the next time it is needed.
+                delete(job);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Saves the job's index again after its database has been saved, so that
+     * the saved index matches the new database files. An index taken before
+     * the latest change is left alone, since its writer is about to replace
+     * it. Must be called while holding the job's {@link DatabaseWriteLock}.
+     * @param job The job.
+     */
+    static void markSaved(Job<?,?> job) {
+        DatabaseIndex index = indexes.get(job.getFullName());
+        if(index == null || index.generation != DatabaseCache.getGeneration(job)) {
+            return;
+        }
+        try {
+            write(job, index);
+        } catch(IOException e) {
+            delete(job);
+        }
+    }
+
+    /**
+     * Forgets the index of a job that has been deleted, renamed or moved.
+     * @param jobFullName The job's full name before it was deleted, renamed or moved.
+     */
+    public static void forget(String jobFullName) {
+        indexes.remove(jobFullName);
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(categories);
+    }
+
+    public int getPlotCount() {
+        return plotCount;
+    }
+
+    public int getFailedPlotCount() {
+        return failedPlotCount;
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static File getFile(Job<?,?> job) {
+        return new File(job.getRootDir(), INDEX_FILE_NAME);
+    }
+
+    static DatabaseIndex read(Job<?,?> job) {
+        File file = getFile(job);
+        if(!file.exists()) {
+            return null;
+        }
+        try(Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            DatabaseIndex index = new Gson().fromJson(reader, DatabaseIndex.class);
+            if(index == null || index.categories == null) {
+                return null;
+            }
+            String fingerprint = getDatabaseFingerprint(job);
+            if(fingerprint == null || !Objects.equals(fingerprint, index.databaseFingerprint)) {
+                // The database was saved after the index was.
+                return null;
+            }
+            // Generations only mean something within this run of Jenkins, and
+            // anything indexed from now on is newer than what was saved.
+            index.generation = -1;
+            return index;
+        } catch(IOException | JsonParseException e) {
+            // A corrupt index only costs us a walk of the database.
+            return null;
+        }
+    }
+
+    private static void write(Job<?,?> job, DatabaseIndex index) throws IOException {
+        if(job.getRootDir() == null) {
+            // The job is not attached to a parent, so it has nowhere to keep the index.
+            return;
+        }
+        index.databaseFingerprint = getDatabaseFingerprint(job);
+        File file = getFile(job);
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try(Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            new Gson().toJson(index, writer);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The number, total size and latest modification time of the
+     * job's database files, or null if they could not be read.
+     */
+    private static String getDatabaseFingerprint(Job<?,?> job) {
+        long fileCount = 0;
+        long totalSize = 0;
+        long lastModified = 0;
+        try(Stream<Path> paths = Files.walk(WatchrJenkinsApp.getDatabaseDir(job).toPath())) {
+            for(Path path : (Iterable<Path>) paths::iterator) {
+                if(Files.isRegularFile(path)) {
+                    fileCount++;
+                    totalSize += Files.size(path);
+                    lastModified = Math.max(lastModified, Files.getLastModifiedTime(path).toMillis());
+                }
+            }
+        } catch(NoSuchFileException e) {
+            // The database has never been saved.
+        } catch(IOException | UncheckedIOException e) {
+            return null;
+        }
+        return fileCount + ":" + totalSize + ":" + lastModified;
+    }
+
+    private static void delete(Job<?,?> job) {
+        try {
+            Files.deleteIfExists(getFile(job).toPath());
+        } catch(IOException e) {
+            // Nothing more can be done; the stale index is replaced on the next change.
+        }
+    }
+}
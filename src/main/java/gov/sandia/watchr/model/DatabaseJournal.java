@@ -0,0 +1,429 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.WatchrCoreApp;
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import gov.sandia.watchr.impl.ReportTreeSnapshot;
+import gov.sandia.watchr.impl.WatchrJenkinsFileReader;
+import gov.sandia.watchr.log.ILogger;
+import gov.sandia.watchr.parse.WatchrParseException;
+import hudson.FilePath;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+
+/**
+ * An append-only log of the changes made to a job's database since it was
+ * last saved. When journaling is enabled, an ingest or a plot deletion is
+ * applied to the database in memory and recorded here, instead of saving the
+ * whole database. {@link DatabaseCheckpointWork} periodically folds the
+ * journal into the database by saving it once and clearing the journal.<br>
+ * <br>
+ * Each record is a single line holding a CRC-32 checksum followed by the
+ * record as JSON, and is forced to disk before the change is acknowledged.
+ * A torn final line left by a crash fails its checksum and is discarded.<br>
+ * <br>
+ * Ingest records cannot be replayed without the reports they were parsed
+ * from, so the journal keeps its own copy of those reports until the next
+ * checkpoint. If Jenkins stops before a checkpoint, the journal is replayed
+ * the next time the database is loaded.
+ */
+public class DatabaseJournal {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String JOURNAL_DIR = "watchrJournal";
+    private static final String LOG_FILE_NAME = "journal.log";
+    private static final String REPORTS_DIR_PREFIX = "reports-";
+
+    // Keyed by each job's full name.
+    private static final Map<String, DatabaseJournal> journals = new HashMap<>();
+
+    private final Job<?,?> job;
+    private final File directory;
+    private final File logFile;
+    private final List<Record> records;
+
+    /**
+     * True if every record in the journal is reflected in the database held in
+     * memory, which is the case for every record appended since Jenkins started.
+     * Records read back from disk after a restart must be replayed first.
+     */
+    private boolean applied;
+    private int nextReportsDir;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private DatabaseJournal(Job<?,?> job) {
+        this.job = job;
+        this.directory = new File(job.getRootDir(), JOURNAL_DIR);
+        this.logFile = new File(directory, LOG_FILE_NAME);
+        this.records = new ArrayList<>();
+        this.applied = true;
+        load();
+    }
+
+    public static synchronized DatabaseJournal forJob(Job<?,?> job) {
+        return journals.computeIfAbsent(job.getFullName(), k -> new DatabaseJournal(job));
+    }
+
+    /**
+     * Forgets the journal held in memory for a job. Any records on disk stay
+     * where they are, and are read again the next time the journal is used.
+     * @param jobFullName The job's full name.
+     */
+    public static synchronized void forget(String jobFullName) {
+        journals.remove(jobFullName);
+    }
+
+    public static synchronized List<DatabaseJournal> getJournals() {
+        return new ArrayList<>(journals.values());
+    }
+
+    /**
+     * @return True if database changes should be journaled rather than saved
+     * immediately.
+     */
+    public static boolean isEnabled() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if(jenkins == null) {
+            return false;
+        }
+        PerformanceRecorder.DescriptorImpl descriptor =
+            jenkins.getDescriptorByType(PerformanceRecorder.DescriptorImpl.class);
+        return descriptor != null && descriptor.isJournalDatabaseWrites();
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public Job<?,?> getJob() {
+        return job;
+    }
+
+    public synchronized int getPendingRecordCount() {
+        return records.size();
+    }
+
+    /**
+     * @return The time the oldest record not yet folded into the database was
+     * written, or 0 if there are none.
+     */
+    public synchronized long getOldestRecordTime() {
+        return records.isEmpty() ? 0 : records.get(0).time;
+    }
+
+    ////////////
+    // APPEND //
+    ////////////
+
+    /**
+     * Records reports that have just been added to the database in memory,
+     * while holding the job's {@link DatabaseWriteLock}. The
+     * journal takes over the copied report directory, which must not be used
+     * by the caller afterwards. Only the report files that were ingested are
+     * kept, so that replaying the record reads exactly those files again.
+     * @param copiedReportsRoot A private copy of the reports on the controller.
+     * @param reportsFilePath The report directory within that copy.
+     * @param ingestedFiles The snapshot of the report directory that watchr-core
+     * read the reports through, or null if it read the whole directory.
+     * @param configContents The Watchr configuration the reports were parsed with.
+     */
+    public synchronized void appendIngest(
+            FilePath copiedReportsRoot, FilePath reportsFilePath, ReportTreeSnapshot ingestedFiles, String configContents)
+            throws IOException, InterruptedException {
+        String reportsLocation = copiedReportsRoot.toURI().relativize(reportsFilePath.toURI()).getPath();
+        if(ingestedFiles != null) {
+            removeFilesNotIngested(new File(reportsFilePath.getRemote()), ingestedFiles);
+        }
+
+        Files.createDirectories(directory.toPath());
+        File reportsDir = new File(directory, REPORTS_DIR_PREFIX + nextReportsDir++);
+        try {
+            Files.move(new File(copiedReportsRoot.getRemote()).toPath(), reportsDir.toPath());
+        } catch(IOException e) {
+            // Build directories may live on a different file system than the job.
+            copiedReportsRoot.copyRecursiveTo("**/*", new FilePath(reportsDir));
+            copiedReportsRoot.deleteRecursive();
+        }
+
+        Record entry = new Record(Operation.INGEST);
+        entry.reportsDir = reportsDir.getName();
+        entry.reportsLocation = reportsLocation;
+        entry.configContents = configContents;
+        append(entry);
+    }
+
+    /**
+     * Records a plot that has just been deleted from the database in memory,
+     * while holding the job's {@link DatabaseWriteLock}.
+     */
+    public synchronized void appendDelete(String plotName, String category) throws IOException {
+        Record entry = new Record(Operation.DELETE);
+        entry.plotName = plotName;
+        entry.category = category;
+        append(entry);
+    }
+
+    ////////////////
+    // CHECKPOINT //
+    ////////////////
+
+    /**
+     * Saves the database held in memory and clears the journal. Nothing is
+     * saved if the journal holds records that have not been replayed, or if
+     * the database in memory is out of date, since it would be missing them.
+     * @param logger The logger to use.
+     */
+    public void checkpoint(ILogger logger) {
+        // The write lock is always taken before the journal's own monitor.
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        try {
+            synchronized(this) {
+                if(records.isEmpty() || !applied || !DatabaseCache.isCurrent(job)) {
+                    return;
+                }
+                logger.logInfo("Folding " + records.size() + " journal records into database " + job.getName() + "... (watchr-jenkins)");
+                WatchrJenkinsApp.getAppForJob(job).saveDatabase(WatchrJenkinsApp.getDatabaseName(job));
+                writeLock.markSaved();
+                DatabaseIndex.markSaved(job);
+                clear(logger);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Clears the journal after the database has been saved by other means,
+     * such as an ingest that was not journaled. The save covers every record
+     * already reflected in the database in memory. Must be called right after
+     * the save, while holding the job's {@link DatabaseWriteLock}.
+     * @param logger The logger to use.
+     */
+    public synchronized void markSaved(ILogger logger) {
+        if(!records.isEmpty() && applied) {
+            clear(logger);
+        }
+    }
+
+    /**
+     * Replays every record in the journal onto a database that has just been
+     * read from disk, such as after Jenkins restarts. Must be called right
+     * after the database has been connected, while holding the job's
+     * {@link DatabaseWriteLock}. The replayed records are not folded into the
+     * database here, since {@link #checkpoint(ILogger)} only saves a database
+     * that {@link DatabaseCache} knows to be current. The caller checkpoints
+     * once it has marked the database loaded.
+     * @param logger The logger to use.
+     * @return True if any records were replayed.
+     */
+    public synchronized boolean recover(ILogger logger) {
+        if(records.isEmpty()) {
+            return false;
+        }
+
+        logger.logInfo("Replaying " + records.size() + " journal records for database " + job.getName() + "... (watchr-jenkins)");
+        WatchrCoreApp coreApp = WatchrJenkinsApp.getAppForJob(job);
+        String dbName = WatchrJenkinsApp.getDatabaseName(job);
+        for(Record entry : records) {
+            try {
+                if(entry.operation == Operation.INGEST) {
+                    FilePath reportsRoot = new FilePath(new File(directory, entry.reportsDir));
+                    coreApp.setFileReader(new WatchrJenkinsFileReader(reportsRoot, logger));
+                    String reportsPath = reportsRoot.child(entry.reportsLocation).toURI().getPath();
+                    coreApp.addToDatabase(dbName, reportsPath, entry.configContents);
+                } else if(entry.operation == Operation.DELETE) {
+                    coreApp.deletePlotFromDatabase(dbName, entry.plotName, entry.category);
+                }
+            } catch(IOException e1) {
+                logger.logError("An error occurred reading journaled reports: ", e1);
+            } catch(WatchrParseException e2) {
+                logger.logError("An error occurred replaying journaled plot data: ", e2.getOriginalException());
+            } catch(InterruptedException e3) {
+                logger.logError("An interruption exception occurred: ", e3);
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+        applied = true;
+        return true;
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static void removeFilesNotIngested(File reportsDir, ReportTreeSnapshot ingestedFiles) throws IOException {
+        List<Path> files;
+        try(Stream<Path> paths = Files.walk(reportsDir.toPath())) {
+            files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for(Path file : files) {
+            // Skipped, filtered, expired and unreadable files are not in the snapshot.
+            ReportTreeSnapshot.Entry entry = ingestedFiles.getEntry(file.toFile().getAbsolutePath());
+            if(entry == null || entry.isDirectory()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void append(Record entry) throws IOException {
+        String json = new Gson().toJson(entry);
+        String line = checksum(json) + " " + json + "\n";
+        Files.createDirectories(directory.toPath());
+        try(FileOutputStream fos = new FileOutputStream(logFile, true)) {
+            fos.write(line.getBytes(StandardCharsets.UTF_8));
+            fos.getFD().sync();
+        }
+        records.add(entry);
+    }
+
+    private void load() {
+        if(!logFile.exists()) {
+            return;
+        }
+
+        boolean torn = false;
+        try(BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                Record entry = parse(line);
+                if(entry == null) {
+                    torn = true;
+                    break;
+                }
+                records.add(entry);
+            }
+        } catch(IOException e) {
+            torn = true;
+        }
+
+        for(Record entry : records) {
+            if(entry.reportsDir != null) {
+                int index = Integer.parseInt(entry.reportsDir.substring(REPORTS_DIR_PREFIX.length()));
+                nextReportsDir = Math.max(nextReportsDir, index + 1);
+            }
+        }
+        applied = records.isEmpty();
+
+        if(torn) {
+            // Drop the damaged tail, so that new records are not appended after it.
+            rewrite();
+        }
+    }
+
+    private void rewrite() {
+        File tempFile = new File(directory, LOG_FILE_NAME + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        Gson gson = new Gson();
+        for(Record entry : records) {
+            String json = gson.toJson(entry);
+            sb.append(checksum(json)).append(" ").append(json).append("\n");
+        }
+        try {
+            Files.write(tempFile.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            // The damaged tail will be found and skipped again on the next load.
+        }
+    }
+
+    private void clear(ILogger logger) {
+        try {
+            Files.deleteIfExists(logFile.toPath());
+            if(directory.exists()) {
+                new FilePath(directory).deleteContents();
+            }
+        } catch(IOException e1) {
+            logger.logError("An error occurred clearing the database journal: ", e1);
+        } catch(InterruptedException e2) {
+            logger.logError("An interruption exception occurred: ", e2);
+            Thread.currentThread().interrupt();
+        }
+        records.clear();
+        nextReportsDir = 0;
+    }
+
+    private static Record parse(String line) {
+        int separator = line.indexOf(' ');
+        if(separator < 0) {
+            return null;
+        }
+        String json = line.substring(separator + 1);
+        if(!line.substring(0, separator).equals(checksum(json))) {
+            return null;
+        }
+        try {
+            return new Gson().fromJson(json, Record.class);
+        } catch(JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static String checksum(String json) {
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    private enum Operation {
+        INGEST,
+        DELETE
+    }
+
+    private static class Record {
+        private Operation operation;
+        private long time;
+
+        private String reportsDir;
+        private String reportsLocation;
+        private String configContents;
+
+        private String plotName;
+        private String category;
+
+        private Record(Operation operation) {
+            this.operation = operation;
+            this.time = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.buildsteps.PerformanceRecorder;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Job;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+
+/**
+ * Reads the databases of the most recently changed jobs back into memory in
+ * the background after Jenkins starts, so that the first visits to their
+ * performance pages do not each pay for reading a database from disk.
+ * Build health and the category list never need to wait for this, since they
+ * are served from each build's {@link PerformanceResultSummary} and each
+ * job's {@link DatabaseIndex}.<br>
+ * <br>
+ * A job's index is saved every time its database changes, so the index file's
+ * modification time tells which databases changed most recently. Preloading
+ * stops early once the loaded databases reach the memory budget, since
+ * loading more would only unload the ones just preloaded.
+ */
+public class DatabasePreloader {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final Logger LOGGER = Logger.getLogger(DatabasePreloader.class.getName());
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private DatabasePreloader() {}
+
+    //////////
+    // INIT //
+    //////////
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void preloadDatabases() {
+        PerformanceRecorder.DescriptorImpl descriptor =
+            Jenkins.get().getDescriptorByType(PerformanceRecorder.DescriptorImpl.class);
+        int preloadCount = descriptor.getPreloadDatabaseCount();
+        if(preloadCount <= 0) {
+            return;
+        }
+
+        List<Job<?,?>> jobs = getMostRecentlyChangedJobs(Jenkins.get().getAllItems(Job.class), preloadCount);
+        if(jobs.isEmpty()) {
+            return;
+        }
+        LOGGER.log(Level.INFO, "Preloading {0} Watchr databases (watchr-jenkins)", jobs.size());
+
+        long budgetBytes = descriptor.getDatabaseCacheMegabytes() * 1024L * 1024L;
+        ExecutorService preloaders = Executors.newFixedThreadPool(
+            descriptor.getPreloadThreads(), new NamingThreadFactory(new DaemonThreadFactory(), "Watchr database preload"));
+        for(Job<?,?> job : jobs) {
+            preloaders.submit(() -> preload(job, budgetBytes));
+        }
+        preloaders.shutdown();
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    static void preload(Job<?,?> job, long budgetBytes) {
+        if(budgetBytes > 0 && DatabaseCache.getEstimatedBytes() >= budgetBytes) {
+            return;
+        }
+        try {
+            WatchrJenkinsApp.loadDatabase(job);
+        } catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not preload the Watchr database for " + job.getFullName() + " (watchr-jenkins)", e);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static List<Job<?,?>> getMostRecentlyChangedJobs(Iterable<? extends Job> candidates, int count) {
+        List<Job<?,?>> jobs = new ArrayList<>();
+        List<Long> changedTimes = new ArrayList<>();
+        for(Job<?,?> job : candidates) {
+            File indexFile = new File(job.getRootDir(), DatabaseIndex.INDEX_FILE_NAME);
+            long changedTime = indexFile.exists() ? indexFile.lastModified() : WatchrJenkinsApp.getDatabaseDir(job).lastModified();
+            if(changedTime <= 0) {
+                // This job has no Watchr database.
+                continue;
+            }
+
+            int position = 0;
+            while(position < changedTimes.size() && changedTimes.get(position) >= changedTime) {
+                position++;
+            }
+            if(position < count) {
+                jobs.add(position, job);
+                changedTimes.add(position, changedTime);
+                if(jobs.size() > count) {
+                    jobs.remove(count);
+                    changedTimes.remove(count);
+                }
+            }
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.log.ILogger;
+import hudson.model.Job;
+
+/**
+ * Serializes changes to a single job's database. Every job's
+ * {@link gov.sandia.watchr.WatchrCoreApp} is shared by all of the job's
+ * builds and pages, so anything that changes the database, or the core app's
+ * logger and file reader along with it, must hold this job's lock. Jobs never
+ * wait on each other's locks.<br>
+ * <br>
+ * Saves are coalesced. A writer records its change while holding the lock,
+ * releases the lock, and then calls {@link #commit(long, ILogger)}. If a save
+ * that started after the change was recorded is already covering it, the
+ * writer simply waits for that save. Otherwise, one waiting writer saves on
+ * behalf of every change recorded so far. Many concurrent builds of one job
+ * therefore produce a few saves rather than one save each.
+ */
+public class DatabaseWriteLock {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private static final ConcurrentMap<String, DatabaseWriteLock> locks = new ConcurrentHashMap<>();
+
+    private final Job<?,?> job;
+
+    // Fair, so that a writer waiting to save queues behind writers that are
+    // already waiting to change the database, and saves their changes too.
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private long recordedChanges;
+    private long savedChanges;
+    private boolean saving;
+    private boolean forgotten;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    DatabaseWriteLock(Job<?,?> job) {
+        this.job = job;
+    }
+
+    public static DatabaseWriteLock forJob(Job<?,?> job) {
+        return locks.computeIfAbsent(job.getFullName(), k -> new DatabaseWriteLock(job));
+    }
+
+    /**
+     * Forgets the lock of a job that has been deleted, renamed or moved. The
+     * caller should take the returned lock before dropping the rest of the
+     * job's state, so that nothing is still changing or saving the database
+     * while it goes. Commits still waiting on the lock fail without saving,
+     * since the database they would save is dropped along with the job.
+     * @param jobFullName The job's full name before it was deleted, renamed or moved.
+     * @return The forgotten lock, or null if the job never had one.
+     */
+    public static DatabaseWriteLock forget(String jobFullName) {
+        DatabaseWriteLock writeLock = locks.remove(jobFullName);
+        if(writeLock != null) {
+            synchronized(writeLock) {
+                writeLock.forgotten = true;
+            }
+        }
+        return writeLock;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    public void lock() {
+        lock.lock();
+    }
+
+    /**
+     * @return True if the lock was free and is now held.
+     */
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Records that the database held in memory has changed and needs saving.
+     * Must be called while holding the lock.
+     * @return A ticket to pass to {@link #commit(long, ILogger)}.
+     */
+    public long recordChange() {
+        if(!lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("The database write lock for " + job.getFullName() + " is not held.");
+        }
+        synchronized(this) {
+            return ++recordedChanges;
+        }
+    }
+
+    /**
+     * @return True if changes have been recorded that no save has covered yet.
+     */
+    public synchronized boolean hasUnsavedChanges() {
+        return saving || savedChanges < recordedChanges;
+    }
+
+    /**
+     * Records that the database has been saved by some other means, covering
+     * every change recorded so far. Must be called while holding the lock.
+     */
+    public synchronized void markSaved() {
+        savedChanges = recordedChanges;
+    }
+
+    /**
+     * Returns once the change with the given ticket has been saved, saving the
+     * database on this thread if no save in progress covers it. Must be called
+     * without holding the lock.
+     * @param ticket The ticket returned by {@link #recordChange()}.
+     * @param logger The logger to use.
+     * @throws IOException If the lock was forgotten before the change was
+     * saved, so the change will never be saved.
+     */
+    public void commit(long ticket, ILogger logger) throws IOException, InterruptedException {
+        while(true) {
+            synchronized(this) {
+                while(saving && savedChanges < ticket) {
+                    wait();
+                }
+                if(savedChanges >= ticket) {
+                    return;
+                }
+                if(forgotten) {
+                    throw new IOException("The database of " + job.getFullName() + " was dropped from memory before this change was saved.");
+                }
+                saving = true;
+            }
+            save(logger);
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private void save(ILogger logger) {
+        long coveredChanges = -1;
+        lock.lock();
+        try {
+            long pendingChanges;
+            synchronized(this) {
+                coveredChanges = recordedChanges;
+                pendingChanges = coveredChanges - savedChanges;
+                if(forgotten) {
+                    // Nothing is saved, so nothing is covered.
+                    coveredChanges = -1;
+                    return;
+                }
+            }
+            logger.logInfo("Saving database " + job.getName() + " for " + pendingChanges + " changes... (watchr-jenkins)");
+            saveDatabase(logger);
+        } catch(RuntimeException e) {
+            coveredChanges = -1;
+            throw e;
+        } finally {
+            lock.unlock();
+            synchronized(this) {
+                saving = false;
+                savedChanges = Math.max(savedChanges, coveredChanges);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Saves the job's database. Called while holding the lock.
+     * @param logger The logger to use.
+     */
+    void saveDatabase(ILogger logger) {
+        WatchrJenkinsApp.getAppForJob(job).saveDatabase(WatchrJenkinsApp.getDatabaseName(job));
+        DatabaseJournal.forJob(job).markSaved(logger);
+        DatabaseIndex.markSaved(job);
+    }
+}
@@ -0,0 +1,243 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import gov.sandia.watchr.config.GraphDisplayConfig;
+import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
+
+/**
+ * What one viewer of a job's Performance Reports page is looking at: the
+ * location in the plot tree, the page, and the display settings. A view state
+ * is read from a request's parameters once, and never changes afterwards, so
+ * concurrent viewers of the same job no longer overwrite each other's
+ * settings.<br>
+ * <br>
+ * The job's {@link GraphDisplayConfig} only supplies the defaults for
+ * settings that a request leaves out. A view state is applied to a copy of it
+ * with {@link #applyTo(GraphDisplayConfig)}, and can be written back out as
+ * request parameters with {@link #toQueryString()}, so that any view can be
+ * linked to and is described entirely by its URL.
+ */
+public final class GraphViewState {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final String path;
+    private final String category;
+    private final int page;
+    private final int displayRange;
+    private final int graphWidth;
+    private final int graphHeight;
+    private final int graphsPerRow;
+    private final int displayedDecimalPlaces;
+    private final GraphDisplaySort sort;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public GraphViewState(
+            String path, String category, int page, int displayRange, int graphWidth, int graphHeight,
+            int graphsPerRow, int displayedDecimalPlaces, GraphDisplaySort sort) {
+        this.path = path;
+        this.category = category;
+        this.page = page;
+        this.displayRange = displayRange;
+        this.graphWidth = graphWidth;
+        this.graphHeight = graphHeight;
+        this.graphsPerRow = graphsPerRow;
+        this.displayedDecimalPlaces = displayedDecimalPlaces;
+        this.sort = sort;
+    }
+
+    /**
+     * @param config The display settings.
+     * @return The view state that the given settings display.
+     */
+    public static GraphViewState of(GraphDisplayConfig config) {
+        return new GraphViewState(
+            config.getNextPlotDbLocation(), config.getDisplayCategory(), config.getPage(),
+            config.getDisplayRange(), config.getGraphWidth(), config.getGraphHeight(),
+            config.getGraphsPerRow(), config.getDisplayedDecimalPlaces(), config.getSort());
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getDisplayRange() {
+        return displayRange;
+    }
+
+    public int getGraphWidth() {
+        return graphWidth;
+    }
+
+    public int getGraphHeight() {
+        return graphHeight;
+    }
+
+    public int getGraphsPerRow() {
+        return graphsPerRow;
+    }
+
+    public int getDisplayedDecimalPlaces() {
+        return displayedDecimalPlaces;
+    }
+
+    public GraphDisplaySort getSort() {
+        return sort;
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * @param newPath The location in the plot tree.
+     * @param newPage The page.
+     * @return This view state, moved to another location and page.
+     */
+    public GraphViewState withLocation(String newPath, int newPage) {
+        return new GraphViewState(
+            newPath, category, newPage, displayRange, graphWidth, graphHeight,
+            graphsPerRow, displayedDecimalPlaces, sort);
+    }
+
+    /**
+     * @param defaults The job's display settings, which are left unchanged.
+     * @return A copy of the job's display settings, showing this view.
+     */
+    public GraphDisplayConfig applyTo(GraphDisplayConfig defaults) {
+        GraphDisplayConfig config = new GraphDisplayConfig(defaults);
+        config.setNextPlotDbLocation(path);
+        config.setDisplayCategory(category);
+        config.setPage(page);
+        config.setDisplayRange(displayRange);
+        config.setGraphWidth(graphWidth);
+        config.setGraphHeight(graphHeight);
+        config.setGraphsPerRow(graphsPerRow);
+        config.setDisplayedDecimalPlaces(displayedDecimalPlaces);
+        config.setSort(sort);
+        return config;
+    }
+
+    /**
+     * @return The request parameters for every setting of this view state
+     * other than its location and page, in order, with URL-encoded values.
+     */
+    public Map<String,String> toSettingsParameterMap() throws UnsupportedEncodingException {
+        Map<String,String> params = new LinkedHashMap<>();
+        params.put(JenkinsConfigContext.PARAM_CATEGORY, encode(category));
+        params.put(JenkinsConfigContext.PARAM_TIME_SCALE, Integer.toString(displayRange));
+        params.put(JenkinsConfigContext.PARAM_GRAPH_WIDTH, Integer.toString(graphWidth));
+        params.put(JenkinsConfigContext.PARAM_GRAPH_HEIGHT, Integer.toString(graphHeight));
+        params.put(JenkinsConfigContext.PARAM_GRAPHS_PER_ROW, Integer.toString(graphsPerRow));
+        params.put(JenkinsConfigContext.PARAM_ROUND_TO, Integer.toString(displayedDecimalPlaces));
+        // A sent category means that an absent sort flag is read as descending.
+        if(sort == GraphDisplaySort.ASCENDING) {
+            params.put(JenkinsConfigContext.PARAM_SORT_ASCENDING, "true");
+        }
+        return params;
+    }
+
+    /**
+     * @return The request parameters for every setting of this view state
+     * other than its location and page, without a leading separator.
+     */
+    public String toSettingsQueryString() throws UnsupportedEncodingException {
+        StringBuilder sb = new StringBuilder();
+        for(Map.Entry<String,String> param : toSettingsParameterMap().entrySet()) {
+            if(sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(param.getKey()).append('=').append(param.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The request parameters for this whole view state, starting with "?".
+     */
+    public String toQueryString() throws UnsupportedEncodingException {
+        StringBuilder sb = new StringBuilder("?");
+        sb.append(JenkinsConfigContext.PARAM_PATH).append('=').append(encode(path));
+        sb.append('&').append(JenkinsConfigContext.PARAM_PAGE).append('=').append(page);
+        sb.append('&').append(toSettingsQueryString());
+        return sb.toString();
+    }
+
+    //////////////
+    // OVERRIDE //
+    //////////////
+
+    @Override
+    public boolean equals(Object other) {
+        if(this == other) {
+            return true;
+        }
+        if(!(other instanceof GraphViewState)) {
+            return false;
+        }
+        GraphViewState otherState = (GraphViewState) other;
+        return page == otherState.page &&
+               displayRange == otherState.displayRange &&
+               graphWidth == otherState.graphWidth &&
+               graphHeight == otherState.graphHeight &&
+               graphsPerRow == otherState.graphsPerRow &&
+               displayedDecimalPlaces == otherState.displayedDecimalPlaces &&
+               Objects.equals(path, otherState.path) &&
+               Objects.equals(category, otherState.category) &&
+               sort == otherState.sort;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            path, category, page, displayRange, graphWidth, graphHeight,
+            graphsPerRow, displayedDecimalPlaces, sort);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return toQueryString();
+        } catch(UnsupportedEncodingException e) {
+            return super.toString();
+        }
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static String encode(String value) throws UnsupportedEncodingException {
+        return value != null ? URLEncoder.encode(value, StandardCharsets.UTF_8.name()) : "";
+    }
+}
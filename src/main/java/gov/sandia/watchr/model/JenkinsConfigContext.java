@@ -13,7 +13,6 @@ import gov.sandia.watchr.WatchrCoreApp;
 import gov.sandia.watchr.WatchrJenkinsApp;
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
-import gov.sandia.watchr.log.ILogger;
 import gov.sandia.watchr.util.CommonConstants;
 import hudson.model.Job;
 
@@ -73,6 +72,22 @@ public class JenkinsConfigContext {
         }
     }
 
+    private JenkinsConfigContext(Job<?,?> job, GraphDisplayConfig graphDisplayConfig) {
+        this.job = job;
+        this.graphDisplayConfig = graphDisplayConfig;
+    }
+
+    /**
+     * The job's display settings are only the defaults for each viewer's
+     * {@link GraphViewState}, and are never changed by a page request.
+     * @param viewState What a viewer is looking at.
+     * @return A context for the same job, whose display settings are a copy
+     * showing the given view.
+     */
+    public JenkinsConfigContext forView(GraphViewState viewState) {
+        return new JenkinsConfigContext(job, viewState.applyTo(graphDisplayConfig));
+    }
+
     /////////////
     // GETTERS //
     /////////////
@@ -82,7 +97,7 @@ public class JenkinsConfigContext {
     }
 
     public String getDatabaseName() {
-        return job.getName();
+        return WatchrJenkinsApp.getDatabaseName(job);
     }
 
     public GraphDisplayConfig getGraphDisplayConfig() {
@@ -90,32 +105,14 @@ public class JenkinsConfigContext {
     }
     
     public Set<String> getCategories() {
-        WatchrJenkinsApp.loadDatabase(job);
-        WatchrCoreApp app = WatchrJenkinsApp.getAppForJob(job);
-        Set<String> categories = app.getDatabaseCategories(getDatabaseName());
-
-        ILogger logger = app.getLogger();
-        logger.logInfo(categories.toString());
-        return categories;
+        return DatabaseIndex.forJob(job).getCategories();
     }
 
     public int getNumberOfPlots() {
-        WatchrJenkinsApp.loadDatabase(job);
-        WatchrCoreApp app = WatchrJenkinsApp.getAppForJob(job);
-        int plotNumber = app.getPlotsSize(getDatabaseName());
-
-        ILogger logger = app.getLogger();
-        logger.logInfo("Number of plots: " + plotNumber);
-        return plotNumber;
+        return DatabaseIndex.forJob(job).getPlotCount();
     }
 
     public int getNumberOfFailedPlots() {
-        WatchrJenkinsApp.loadDatabase(job);
-        WatchrCoreApp app = WatchrJenkinsApp.getAppForJob(job);
-        int plotNumber = app.getFailedPlotsSize(getDatabaseName());
-
-        ILogger logger = app.getLogger();
-        logger.logInfo("Number of failed plots: " + plotNumber);
-        return plotNumber;
+        return DatabaseIndex.forJob(job).getFailedPlotCount();
     }
 }
@@ -0,0 +1,49 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+/**
+ * The state of a job's database right after one build's reports were
+ * ingested. It is saved with the build, so that the build's health, status
+ * summary and history can be shown without loading the database, and so that
+ * each build reports its own results rather than the database's current state.
+ */
+public final class PerformanceResultSummary {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    private final int totalCount;
+    private final int failCount;
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    public PerformanceResultSummary(int totalCount, int failCount) {
+        this.totalCount = totalCount;
+        this.failCount = failCount;
+    }
+
+    public static PerformanceResultSummary of(DatabaseIndex index) {
+        return new PerformanceResultSummary(index.getPlotCount(), index.getFailedPlotCount());
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import gov.sandia.watchr.impl.ReportTreeSnapshot;
+import hudson.model.Job;
+
+/**
+ * A persisted record of the performance report files that have already been
+ * ingested into a job's database. Each entry holds the report's path relative
+ * to the report directory, its size, its modification time, and a digest of
+ * its contents.<br>
+ * <br>
+ * The manifest is tied to the Watchr configuration that was in effect when
+ * the reports were ingested. If the configuration changes, the manifest is
+ * cleared, since the same report may produce different plots.
+ */
+public class ReportManifest {
+
+    ////////////
+    // FIELDS //
+    ////////////
+
+    public static final String MANIFEST_FILE_NAME = "watchrReportManifest.json";
+
+    private transient File file;
+
+    private String configHash;
+    private Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /////////////////
+    // CONSTRUCTOR //
+    /////////////////
+
+    private ReportManifest(File file) {
+        this.file = file;
+    }
+
+    //////////
+    // LOAD //
+    //////////
+
+    /**
+     * Loads the manifest for a job. The manifest lives beside the job's
+     * database directory, so that the database never sees it.
+     * @param job The job.
+     * @return The job's manifest, or an empty manifest if none has been saved yet.
+     * @throws IOException Thrown if the manifest file exists but cannot be read.
+     */
+    public static ReportManifest load(Job<?,?> job) throws IOException {
+        File file = new File(job.getRootDir(), MANIFEST_FILE_NAME);
+        ReportManifest manifest = null;
+        if(file.exists()) {
+            try(Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                manifest = new Gson().fromJson(reader, ReportManifest.class);
+            } catch(JsonParseException e) {
+                // A corrupt manifest only costs us a full re-ingest.
+                manifest = null;
+            }
+        }
+
+        if(manifest == null) {
+            manifest = new ReportManifest(file);
+        }
+        manifest.file = file;
+        if(manifest.entries == null) {
+            manifest.entries = new LinkedHashMap<>();
+        }
+        return manifest;
+    }
+
+    public void save() throws IOException {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try(Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().create().toJson(this, writer);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /////////////
+    // GETTERS //
+    /////////////
+
+    public int size() {
+        return entries.size();
+    }
+
+    ////////////
+    // PUBLIC //
+    ////////////
+
+    /**
+     * Removes every file from the snapshot whose contents have already been
+     * ingested under the given configuration.
+     * @param snapshot A snapshot whose entries carry content hashes.
+     * @param configHash A digest of the Watchr configuration for this build.
+     * @return The number of files removed from the snapshot.
+     */
+    public int removeIngestedFiles(ReportTreeSnapshot snapshot, String configHash) {
+        if(!configHash.equals(this.configHash)) {
+            entries.clear();
+            this.configHash = configHash;
+            return 0;
+        }
+
+        Set<String> ingestedHashes = new HashSet<>();
+        for(Entry entry : entries.values()) {
+            ingestedHashes.add(entry.contentHash);
+        }
+
+        int removed = 0;
+        for(ReportTreeSnapshot.Entry snapshotEntry : snapshot.getFiles()) {
+            if(ingestedHashes.contains(snapshotEntry.getContentHash())) {
+                snapshot.removeEntry(snapshotEntry);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Records every file remaining in the snapshot as ingested.
+     * @param snapshot A snapshot whose entries carry content hashes.
+     * @param configHash A digest of the Watchr configuration the files were
+     * ingested with. If it differs from the manifest's, the manifest is cleared
+     * first.
+     */
+    public void recordIngestedFiles(ReportTreeSnapshot snapshot, String configHash) {
+        if(!configHash.equals(this.configHash)) {
+            entries.clear();
+            this.configHash = configHash;
+        }
+        for(ReportTreeSnapshot.Entry snapshotEntry : snapshot.getFiles()) {
+            if(snapshotEntry.getContentHash() != null) {
+                String relativePath = snapshot.getRelativePath(snapshotEntry);
+                entries.put(relativePath, new Entry(
+                    relativePath, snapshotEntry.getSize(), snapshotEntry.getLastModified(), snapshotEntry.getContentHash()));
+            }
+        }
+    }
+
+    /////////////////
+    // INNER CLASS //
+    /////////////////
+
+    public static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String contentHash;
+
+        public Entry(String path, long size, long lastModified, String contentHash) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+    }
+}
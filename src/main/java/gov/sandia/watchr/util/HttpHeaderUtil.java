@@ -0,0 +1,88 @@
+/*******************************************************************************
+* Watchr
+* ------
+* Copyright 2021 National Technology & Engineering Solutions of Sandia, LLC (NTESS).
+* Under the terms of Contract DE-NA0003525 with NTESS, the U.S. Government retains
+* certain rights in this software.
+******************************************************************************/
+package gov.sandia.watchr.util;
+
+import java.util.Locale;
+
+public class HttpHeaderUtil {
+
+    private HttpHeaderUtil() {}
+
+    /**
+     * @param ifNoneMatch The request's If-None-Match header, or null.
+     * @param etag The entity tag of the response, including its quotes.
+     * @return True if the header lists the tag, or is "*". Tags are compared
+     * whole, and weak tags match their strong counterparts, as If-None-Match
+     * requires.
+     */
+    public static boolean matchesETag(String ifNoneMatch, String etag) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+        for(String listedTag : ifNoneMatch.split(",")) {
+            String tag = listedTag.trim();
+            if(tag.equals("*")) {
+                return true;
+            }
+            if(tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if(tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param acceptEncoding The request's Accept-Encoding header, or null.
+     * @return True if the client accepts a gzipped response. A gzip coding
+     * with a quality of 0 is refused, as is "*" with a quality of 0 when
+     * gzip is not listed.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for(String listedCoding : acceptEncoding.split(",")) {
+            String[] parts = listedCoding.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = getQuality(parts);
+            if(coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if(coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        if(gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    /////////////
+    // PRIVATE //
+    /////////////
+
+    private static double getQuality(String[] parts) {
+        for(int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if(parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch(NumberFormatException e) {
+                    // A malformed quality refuses the coding.
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -18,6 +18,7 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import gov.sandia.watchr.config.GraphDisplayConfig;
 import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
+import gov.sandia.watchr.model.GraphViewState;
 import gov.sandia.watchr.model.JenkinsConfigContext;
 
 /**
@@ -28,68 +29,42 @@ public class StaplerRequestUtil {
 
     private StaplerRequestUtil() {}
 
-    public static void updateGraphDisplayConfigFromParameterList(
-            GraphDisplayConfig graphDisplayConfig) throws UnsupportedEncodingException {
-                
-        String path_ = UrlUtil.getProcessedURL(parseStringParameter(JenkinsConfigContext.PARAM_PATH, ""));
-        String category_ = parseStringParameter(JenkinsConfigContext.PARAM_CATEGORY, graphDisplayConfig.getDisplayCategory());
-        int timeScale_ = parseIntParameter(JenkinsConfigContext.PARAM_TIME_SCALE, graphDisplayConfig.getDisplayRange());
-        int graphWidth_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPH_WIDTH, graphDisplayConfig.getGraphWidth());
-        int graphHeight_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPH_HEIGHT, graphDisplayConfig.getGraphHeight());
-        int graphsPerRow_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPHS_PER_ROW, graphDisplayConfig.getGraphsPerRow());
-        int roundTo_ = parseIntParameter(JenkinsConfigContext.PARAM_ROUND_TO, graphDisplayConfig.getDisplayedDecimalPlaces());
-        int page_ = parseIntParameter(JenkinsConfigContext.PARAM_PAGE, graphDisplayConfig.getPage());
-
-        boolean configSortAsecnding = graphDisplayConfig.getSort() == GraphDisplaySort.ASCENDING;
-        boolean sortAscending_ = parseBooleanParameter(JenkinsConfigContext.PARAM_SORT_ASCENDING, configSortAsecnding);
-        
-        if(parameterValueExists(JenkinsConfigContext.PARAM_PATH) && !graphDisplayConfig.getNextPlotDbLocation().equals(path_)) {
-            graphDisplayConfig.setNextPlotDbLocation(path_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_CATEGORY) && !graphDisplayConfig.getDisplayCategory().equals(category_)) {
-            graphDisplayConfig.setDisplayCategory(category_);
-
-            // Reset to page 1 if the category is changed.
-            page_ = 1;
-            graphDisplayConfig.setPage(page_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_TIME_SCALE) && graphDisplayConfig.getDisplayRange() != timeScale_) {
-            graphDisplayConfig.setDisplayRange(timeScale_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_GRAPH_WIDTH) && graphDisplayConfig.getGraphWidth() != graphWidth_) {
-            graphDisplayConfig.setGraphWidth(graphWidth_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_GRAPH_HEIGHT) && graphDisplayConfig.getGraphHeight() != graphHeight_) {
-            graphDisplayConfig.setGraphHeight(graphHeight_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_GRAPHS_PER_ROW) && graphDisplayConfig.getGraphsPerRow() != graphsPerRow_) {
-            graphDisplayConfig.setGraphsPerRow(graphsPerRow_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_ROUND_TO) && graphDisplayConfig.getDisplayedDecimalPlaces() != roundTo_) {
-            graphDisplayConfig.setDisplayedDecimalPlaces(roundTo_);
-        }
-
-        if(parameterValueExists(JenkinsConfigContext.PARAM_PAGE) && graphDisplayConfig.getPage() != page_) {
-            graphDisplayConfig.setPage(page_);
-        }
+    /**
+     * Reads the view state sent with the current request.
+     * @param defaults The job's display settings, used for anything the
+     * request leaves out. They are not changed.
+     * @return The view state.
+     */
+    public static GraphViewState getGraphViewStateFromParameterList(
+            GraphDisplayConfig defaults) throws UnsupportedEncodingException {
+
+        String path_ = defaults.getNextPlotDbLocation();
+        if(parameterValueExists(JenkinsConfigContext.PARAM_PATH)) {
+            path_ = UrlUtil.getProcessedURL(parseStringParameter(JenkinsConfigContext.PARAM_PATH, ""));
+        }
+        String category_ = parseStringParameter(JenkinsConfigContext.PARAM_CATEGORY, defaults.getDisplayCategory());
+        int timeScale_ = parseIntParameter(JenkinsConfigContext.PARAM_TIME_SCALE, defaults.getDisplayRange());
+        int graphWidth_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPH_WIDTH, defaults.getGraphWidth());
+        int graphHeight_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPH_HEIGHT, defaults.getGraphHeight());
+        int graphsPerRow_ = parseIntParameter(JenkinsConfigContext.PARAM_GRAPHS_PER_ROW, defaults.getGraphsPerRow());
+        int roundTo_ = parseIntParameter(JenkinsConfigContext.PARAM_ROUND_TO, defaults.getDisplayedDecimalPlaces());
+        // Changing the category from the options form sends no page, so the
+        // view goes back to the default page.
+        int page_ = parseIntParameter(JenkinsConfigContext.PARAM_PAGE, defaults.getPage());
 
         // Note:  We can use "category" as an indicator that a full parameter list was sent,
         // and therefore we should consider changes to the following boolean settings.  It's a
         // bit of a cheat to help us get around the fact that we can't distinguish between
         // a boolean parameter being "false" vs. simply being absent from the parameter list.
-        if(StaplerRequestUtil.parameterValueExists(JenkinsConfigContext.PARAM_CATEGORY) && sortAscending_ != configSortAsecnding) {
-            if(sortAscending_) {
-                graphDisplayConfig.setSort(GraphDisplaySort.ASCENDING);
-            } else {
-                graphDisplayConfig.setSort(GraphDisplaySort.DESCENDING);
-            }
+        GraphDisplaySort sort_ = defaults.getSort();
+        if(StaplerRequestUtil.parameterValueExists(JenkinsConfigContext.PARAM_CATEGORY)) {
+            boolean configSortAscending = defaults.getSort() == GraphDisplaySort.ASCENDING;
+            boolean sortAscending_ = parseBooleanParameter(JenkinsConfigContext.PARAM_SORT_ASCENDING, configSortAscending);
+            sort_ = sortAscending_ ? GraphDisplaySort.ASCENDING : GraphDisplaySort.DESCENDING;
         }
+
+        return new GraphViewState(
+            path_, category_, page_, timeScale_, graphWidth_, graphHeight_, graphsPerRow_, roundTo_, sort_);
     }
 
     public static String getDeletedPlotNameFromParameterList() throws UnsupportedEncodingException {
@@ -14,7 +14,8 @@ public class WatchrJenkinsAppManagerTest {
 
     @Test
     public void testGetConfigContext_Blank() {
-        
+        Mockito.when(job.getFullName()).thenReturn("job");
+
         JenkinsConfigContext context = WatchrJenkinsApp.getConfigContextOrDefault(job);
         assertNotNull(context);
     }
@@ -0,0 +1,63 @@
+package gov.sandia.watchr.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import gov.sandia.watchr.model.DatabaseJournal;
+import gov.sandia.watchr.model.DatabaseWriteLock;
+import gov.sandia.watchr.model.TestJobs;
+import hudson.model.Job;
+
+public class PerformanceResultsProjectActionTest {
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "DeleteJob");
+            assertTrue(job.getRootDir().mkdirs());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        WatchrJenkinsApp.forgetJob(job, job.getFullName());
+    }
+
+    @Test
+    public void testDeletePlot_JournaledAndReplayedAfterRestart() {
+        try {
+            PerformanceResultsProjectAction.deletePlot(job, "plot", "category", WatchrJenkinsApp.getLoggerForJob(job));
+
+            // The deletion is journaled instead of saving the database.
+            assertEquals(1, DatabaseJournal.forJob(job).getPendingRecordCount());
+            assertTrue(DatabaseWriteLock.forJob(job).hasUnsavedChanges());
+
+            // Jenkins restarts before the journal is folded into the database.
+            WatchrJenkinsApp.forgetJob(job, job.getFullName());
+            assertEquals(1, DatabaseJournal.forJob(job).getPendingRecordCount());
+
+            // Loading the database replays the deletion and folds it in.
+            WatchrJenkinsApp.loadDatabase(job);
+            assertEquals(0, DatabaseJournal.forJob(job).getPendingRecordCount());
+            assertFalse(DatabaseWriteLock.forJob(job).hasUnsavedChanges());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package gov.sandia.watchr.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.TestJobs;
+import hudson.model.Job;
+
+public class WatchrManagementLinkTest {
+
+    private static int jobCount = 0;
+
+    private Job<?,?> job;
+    private WatchrManagementLink link;
+
+    @Before
+    public void setup() {
+        // The cache outlives each test, so every test gets a job of its own.
+        job = TestJobs.create(new File(System.getProperty("java.io.tmpdir")), "LinkJob" + jobCount++);
+        link = new WatchrManagementLink();
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseCache.forget(job.getFullName());
+    }
+
+    @Test
+    public void testCacheStatistics_HitsAndMisses() {
+        long hits = link.getDatabaseCacheHits();
+        long misses = link.getDatabaseCacheMisses();
+
+        DatabaseCache.needsLoad(job);
+        DatabaseCache.markLoaded(job, 0, 0);
+        DatabaseCache.needsLoad(job);
+
+        assertEquals(hits + 1, link.getDatabaseCacheHits());
+        assertEquals(misses + 1, link.getDatabaseCacheMisses());
+    }
+
+    @Test
+    public void testCacheStatistics_LoadedDatabases() {
+        int loadedCount = link.getLoadedDatabaseCount();
+        long megabytes = link.getLoadedDatabaseMegabytes();
+        long averageLoadMillis = link.getAverageDatabaseLoadMillis();
+        long evictions = link.getDatabaseEvictions();
+
+        DatabaseCache.markLoaded(job, 3L * 1024L * 1024L, 1000000000L);
+        assertEquals(loadedCount + 1, link.getLoadedDatabaseCount());
+        assertEquals(megabytes + 3, link.getLoadedDatabaseMegabytes());
+        assertTrue(link.getAverageDatabaseLoadMillis() > averageLoadMillis);
+
+        DatabaseCache.recordEviction();
+        assertEquals(evictions + 1, link.getDatabaseEvictions());
+    }
+}
@@ -0,0 +1,83 @@
+package gov.sandia.watchr.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import gov.sandia.watchr.util.HashUtil;
+
+public class GraphRenderCacheTest {
+
+    @Test
+    public void testEntry_RoundTrip() {
+        try {
+            String html = "<div id='graph'>Graph</div>";
+            GraphRenderCache.Entry entry = new GraphRenderCache.Entry(html, "root/child", 4);
+            StringWriter writer = new StringWriter();
+            entry.writeHtml(writer);
+            assertEquals(html, writer.toString());
+            assertEquals("root/child", entry.getPlotDbLocation());
+            assertEquals(4, entry.getNumberOfGraphs());
+
+            GraphRenderCache.Entry sameEntry = new GraphRenderCache.Entry(html, "root/child", 4);
+            GraphRenderCache.Entry otherEntry = new GraphRenderCache.Entry("<div>Other</div>", "root/child", 4);
+            assertEquals(entry.getETag(false), sameEntry.getETag(false));
+            assertEquals(entry.getETag(true), sameEntry.getETag(true));
+            assertNotEquals(entry.getETag(false), otherEntry.getETag(false));
+            // Each coding of the same HTML is its own representation.
+            assertNotEquals(entry.getETag(false), entry.getETag(true));
+            assertEquals("\"" + HashUtil.sha256(html) + "\"", entry.getETag(false));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEntry_HtmlChunks() {
+        try {
+            StringBuilder htmlSb = new StringBuilder();
+            for(int i = 0; i < 2000; i++) {
+                htmlSb.append("<div id='graph").append(i).append("'>Graph</div>");
+            }
+            String html = htmlSb.toString();
+            GraphRenderCache.Entry entry = new GraphRenderCache.Entry(html, null, 2000);
+
+            StringBuilder chunksSb = new StringBuilder();
+            int numberOfChunks = 0;
+            Iterator<String> chunks = entry.htmlChunks();
+            while(chunks.hasNext()) {
+                chunksSb.append(chunks.next());
+                numberOfChunks++;
+            }
+            assertEquals(html, chunksSb.toString());
+            assertTrue(numberOfChunks > 1);
+            assertFalse(chunks.hasNext());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPutAndForget() {
+        try {
+            GraphRenderCache.Entry entry = new GraphRenderCache.Entry("<div>Graph</div>", null, 1);
+            GraphRenderCache.put("folder/job@3|root", entry);
+            assertSame(entry, GraphRenderCache.get("folder/job@3|root"));
+
+            GraphRenderCache.forget("folder/job");
+            assertNull(GraphRenderCache.get("folder/job@3|root"));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+}
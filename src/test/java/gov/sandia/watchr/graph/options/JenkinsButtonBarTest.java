@@ -0,0 +1,53 @@
+package gov.sandia.watchr.graph.options;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
+import gov.sandia.watchr.model.GraphViewState;
+import gov.sandia.watchr.model.JenkinsConfigContext;
+
+public class JenkinsButtonBarTest {
+
+    @Test
+    public void testAddViewSettings() throws UnsupportedEncodingException {
+        Map<String,String> params = new HashMap<>();
+        params.put(JenkinsConfigContext.PARAM_PATH, "root%2Fchild");
+        params.put(JenkinsConfigContext.PARAM_CATEGORY, "memory");
+        GraphViewState viewState = new GraphViewState("root", "cpu", 2, 30, 800, 600, 2, 4, GraphDisplaySort.ASCENDING);
+
+        Map<String,String> viewParams = JenkinsButtonBar.addViewSettings(params, viewState);
+        // The child's own parameters are kept.
+        assertEquals("root%2Fchild", viewParams.get(JenkinsConfigContext.PARAM_PATH));
+        assertEquals("memory", viewParams.get(JenkinsConfigContext.PARAM_CATEGORY));
+        assertEquals("30", viewParams.get(JenkinsConfigContext.PARAM_TIME_SCALE));
+        assertEquals("800", viewParams.get(JenkinsConfigContext.PARAM_GRAPH_WIDTH));
+        assertEquals("600", viewParams.get(JenkinsConfigContext.PARAM_GRAPH_HEIGHT));
+        assertEquals("2", viewParams.get(JenkinsConfigContext.PARAM_GRAPHS_PER_ROW));
+        assertEquals("4", viewParams.get(JenkinsConfigContext.PARAM_ROUND_TO));
+        assertEquals("true", viewParams.get(JenkinsConfigContext.PARAM_SORT_ASCENDING));
+        // The page is left to the child link.
+        assertFalse(viewParams.containsKey(JenkinsConfigContext.PARAM_PAGE));
+    }
+
+    @Test
+    public void testAddViewSettings_NoChild() throws UnsupportedEncodingException {
+        GraphViewState viewState = new GraphViewState("root", "cpu", 1, 30, 500, 500, 3, 3, GraphDisplaySort.DESCENDING);
+        assertTrue(JenkinsButtonBar.addViewSettings(new HashMap<>(), viewState).isEmpty());
+        assertTrue(JenkinsButtonBar.addViewSettings(null, viewState).isEmpty());
+    }
+
+    @Test
+    public void testAddViewSettings_NoView() throws UnsupportedEncodingException {
+        Map<String,String> params = new HashMap<>();
+        params.put(JenkinsConfigContext.PARAM_PATH, "root%2Fchild");
+        assertEquals(params, JenkinsButtonBar.addViewSettings(params, null));
+    }
+}
@@ -0,0 +1,173 @@
+package gov.sandia.watchr.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.FilePath;
+
+public class WatchrJenkinsFileReaderTest {
+
+    private File workspaceDir;
+    private File reportsDir;
+    private WatchrJenkinsFileReader fileReader;
+
+    @Before
+    public void setup() {
+        try {
+            workspaceDir = Files.createTempDirectory(null).toFile();
+            reportsDir = new File(workspaceDir, "reports");
+            assertTrue(new File(reportsDir, "nested").mkdirs());
+            Files.write(new File(reportsDir, "a.xml").toPath(), "<a/>".getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(reportsDir, "nested/b.xml").toPath(), "<b/>".getBytes(StandardCharsets.UTF_8));
+
+            File logFile = File.createTempFile("watchr", ".log");
+            fileReader = new WatchrJenkinsFileReader(new FilePath(workspaceDir), new WatchrJenkinsLogger(logFile));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadFromFile() {
+        assertEquals("<a/>", fileReader.readFromFile("reports/a.xml"));
+    }
+
+    @Test
+    public void testPrefetch_ReleasesBudget() {
+        try {
+            ReportTreeSnapshot snapshot = new ReportTreeScanner(true, ReportFilter.NONE).invoke(reportsDir, null);
+            fileReader.setTreeSnapshot(snapshot);
+            fileReader.prefetch(snapshot, 2);
+            assertEquals(8, WatchrJenkinsFileReader.getPrefetchedChars());
+
+            assertEquals("<a/>", fileReader.readFromFile("reports/a.xml"));
+            assertEquals(4, WatchrJenkinsFileReader.getPrefetchedChars());
+
+            fileReader.releasePrefetched();
+            assertEquals(0, WatchrJenkinsFileReader.getPrefetchedChars());
+            assertEquals("<b/>", fileReader.readFromFile("reports/nested/b.xml"));
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPrefetch_FailedReadReturnsBudget() {
+        try {
+            ReportTreeSnapshot snapshot = new ReportTreeScanner(true, ReportFilter.NONE).invoke(reportsDir, null);
+            fileReader.setTreeSnapshot(snapshot);
+            assertTrue(new File(reportsDir, "nested/b.xml").delete());
+            fileReader.prefetch(snapshot, 2);
+            assertEquals(4, WatchrJenkinsFileReader.getPrefetchedChars());
+
+            // The failed read is left for readFromFile to report.
+            assertEquals("", fileReader.readFromFile("reports/nested/b.xml"));
+            assertEquals(1, fileReader.getUnreadablePaths().size());
+
+            fileReader.releasePrefetched();
+            assertEquals(0, WatchrJenkinsFileReader.getPrefetchedChars());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPrefetch_InterruptReturnsBudget() {
+        try {
+            // Enough files that some are still queued when the interruption is noticed.
+            File manyDir = new File(reportsDir, "many");
+            assertTrue(manyDir.mkdirs());
+            for(int i = 0; i < 500; i++) {
+                Files.write(new File(manyDir, "r" + i + ".xml").toPath(), "<r/>".getBytes(StandardCharsets.UTF_8));
+            }
+            ReportTreeSnapshot snapshot = new ReportTreeScanner(true, ReportFilter.NONE).invoke(reportsDir, null);
+            fileReader.setTreeSnapshot(snapshot);
+            Thread.currentThread().interrupt();
+            try {
+                fileReader.prefetch(snapshot, 2);
+                fail("The interruption was not reported.");
+            } catch(InterruptedException e) {
+                // Reads that were already running may finish after this.
+                fileReader.releasePrefetched();
+            }
+            awaitPrefetchedChars(0);
+            assertEquals("<a/>", fileReader.readFromFile("reports/a.xml"));
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testTreeSnapshot() {
+        try {
+            ReportTreeSnapshot snapshot = new ReportTreeScanner(true, ReportFilter.NONE).invoke(reportsDir, null);
+            assertEquals(2, snapshot.getFileCount());
+            fileReader.setTreeSnapshot(snapshot);
+
+            String reportsPath = reportsDir.getAbsolutePath();
+            assertTrue(fileReader.isDirectory(reportsPath));
+            assertTrue(fileReader.isFile(reportsPath + "/a.xml"));
+            assertTrue(fileReader.exists(reportsPath + "/nested/b.xml"));
+            assertFalse(fileReader.exists(reportsPath + "/missing.xml"));
+            assertEquals(2, fileReader.getFolderContents(reportsPath).size());
+
+            // Files removed from the snapshot should disappear from the reader's view.
+            snapshot.removeEntry(snapshot.getEntry(reportsPath + "/a.xml"));
+            assertFalse(fileReader.exists(reportsPath + "/a.xml"));
+            assertEquals(1, fileReader.getFolderContents(reportsPath).size());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTreeSnapshot_Filtered() {
+        try {
+            ReportFilter patternFilter = new ReportFilter("**/*.xml", "nested/**", 0, 0);
+            ReportTreeSnapshot snapshot = new ReportTreeScanner(false, patternFilter).invoke(reportsDir, null);
+            assertEquals(1, snapshot.getFileCount());
+            assertTrue(snapshot.getEntry(reportsDir.getAbsolutePath() + "/a.xml") != null);
+
+            ReportFilter countFilter = new ReportFilter("", "", 0, 1);
+            snapshot = new ReportTreeScanner(false, countFilter).invoke(reportsDir, null);
+            assertEquals(1, snapshot.getFileCount());
+            assertEquals(1, snapshot.getExcludedFileCount());
+
+            ReportFilter sizeFilter = new ReportFilter("", "", 1, 0);
+            snapshot = new ReportTreeScanner(false, sizeFilter).invoke(reportsDir, null);
+            assertEquals(0, snapshot.getFileCount());
+            assertEquals(2, snapshot.getExcludedFileCount());
+
+            long twoDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+            assertTrue(new File(reportsDir, "nested/b.xml").setLastModified(twoDaysAgo));
+            ReportFilter ageFilter = new ReportFilter("", "", 0, 0, TimeUnit.DAYS.toMillis(1));
+            snapshot = new ReportTreeScanner(false, ageFilter).invoke(reportsDir, null);
+            assertEquals(1, snapshot.getFileCount());
+            assertEquals(1, snapshot.getExpiredFileCount());
+            assertEquals(0, snapshot.getExcludedFileCount());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private void awaitPrefetchedChars(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(WatchrJenkinsFileReader.getPrefetchedChars() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, WatchrJenkinsFileReader.getPrefetchedChars());
+    }
+}
@@ -0,0 +1,120 @@
+package gov.sandia.watchr.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IngestionQueueTest {
+
+    private File jenkinsDir;
+    private File queueFile;
+
+    @Before
+    public void setup() {
+        try {
+            jenkinsDir = Files.createTempDirectory(null).toFile();
+            queueFile = new File(jenkinsDir, IngestionQueue.QUEUE_FILE_NAME);
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRestore_SkipsAppliedTasks() {
+        try {
+            // Build 1 still has its copied reports. Build 2's reports were taken
+            // over by the journal, or deleted once it finished.
+            assertTrue(new File(getBuildDir(1), IngestionQueue.QUEUED_REPORTS_DIR).mkdirs());
+            assertTrue(getBuildDir(2).mkdirs());
+            String json = "[" + getTaskJson(1) + "," + getTaskJson(2) + "]";
+            Files.write(queueFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+            IngestionQueue queue = newQueue();
+            queue.restore();
+            List<IngestionTask> tasks = queue.getPendingTasks();
+            assertEquals(1, tasks.size());
+            assertEquals("job", tasks.get(0).getJobFullName());
+            assertEquals(1, tasks.get(0).getBuildNumber());
+            assertEquals("reports", tasks.get(0).getReportsLocation());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRestore_NoQueueFile() {
+        IngestionQueue queue = newQueue();
+        queue.restore();
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    @Test
+    public void testRestore_MalformedQueueFile() {
+        try {
+            Files.write(queueFile.toPath(), "[{".getBytes(StandardCharsets.UTF_8));
+            IngestionQueue queue = newQueue();
+            queue.restore();
+            assertEquals(0, queue.getPendingCount());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRenameTasks_RenamesRunningTasks() {
+        try {
+            assertTrue(new File(getBuildDir(1), IngestionQueue.QUEUED_REPORTS_DIR).mkdirs());
+            assertTrue(new File(getBuildDir(2), IngestionQueue.QUEUED_REPORTS_DIR).mkdirs());
+            String json = "[" + getTaskJson(1) + "," + getTaskJson(2) + "]";
+            Files.write(queueFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+            IngestionQueue queue = newQueue();
+            queue.restore();
+            IngestionTask runningTask = queue.take();
+            queue.renameTasks("job", "folder/job");
+
+            // The running task is renamed in place, so that the queue still finds it.
+            assertEquals("folder/job", runningTask.getJobFullName());
+            assertSame(runningTask, queue.getRunningTasks().get(0));
+            assertEquals("folder/job", queue.getPendingTasks().get(0).getJobFullName());
+
+            // Both tasks are restored under the new name.
+            IngestionQueue restored = newQueue();
+            restored.restore();
+            assertEquals(2, restored.getPendingCount());
+            for(IngestionTask task : restored.getPendingTasks()) {
+                assertEquals("folder/job", task.getJobFullName());
+            }
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private IngestionQueue newQueue() {
+        return new IngestionQueue(queueFile, 1) {
+            @Override
+            File getQueuedReportsRoot(IngestionTask task) {
+                return new File(getBuildDir(task.getBuildNumber()), IngestionQueue.QUEUED_REPORTS_DIR);
+            }
+        };
+    }
+
+    private File getBuildDir(int buildNumber) {
+        return new File(jenkinsDir, "builds/" + buildNumber);
+    }
+
+    private String getTaskJson(int buildNumber) {
+        return "{\"jobFullName\":\"job\",\"buildNumber\":" + buildNumber + ",\"reportsLocation\":\"reports\"," +
+               "\"configContents\":\"{}\",\"skipIngestedReports\":false,\"queuedTime\":0}";
+    }
+}
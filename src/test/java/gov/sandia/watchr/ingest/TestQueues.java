@@ -0,0 +1,32 @@
+package gov.sandia.watchr.ingest;
+
+import java.io.File;
+
+/**
+ * Creates ingestion queues backed by a queue file under a temporary directory,
+ * for tests of classes that update the queue.
+ */
+public final class TestQueues {
+
+    private TestQueues() {}
+
+    /**
+     * @return A queue holding the tasks listed in the queue file. Every task is
+     * treated as still having its copied reports.
+     */
+    public static IngestionQueue restore(File queueFile) {
+        IngestionQueue queue = new IngestionQueue(queueFile, 1) {
+            @Override
+            File getQueuedReportsRoot(IngestionTask task) {
+                return queueFile.getParentFile();
+            }
+        };
+        queue.restore();
+        return queue;
+    }
+
+    public static String getTaskJson(String jobFullName, int buildNumber) {
+        return "{\"jobFullName\":\"" + jobFullName + "\",\"buildNumber\":" + buildNumber + ",\"reportsLocation\":\"reports\"," +
+               "\"configContents\":\"{}\",\"skipIngestedReports\":false,\"queuedTime\":0}";
+    }
+}
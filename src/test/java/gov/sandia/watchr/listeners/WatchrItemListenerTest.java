@@ -0,0 +1,87 @@
+package gov.sandia.watchr.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.ingest.IngestionQueue;
+import gov.sandia.watchr.ingest.IngestionTask;
+import gov.sandia.watchr.ingest.TestQueues;
+import gov.sandia.watchr.model.DatabaseCache;
+import gov.sandia.watchr.model.DatabaseWriteLock;
+import gov.sandia.watchr.model.TestJobs;
+import hudson.model.FreeStyleProject;
+
+public class WatchrItemListenerTest {
+
+    private static int jobCount = 0;
+
+    private FreeStyleProject job;
+    private IngestionQueue queue;
+    private WatchrItemListener listener;
+
+    @Before
+    public void setup() {
+        try {
+            File jenkinsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jenkinsDir, "ListenerJob" + jobCount++);
+
+            File queueFile = new File(jenkinsDir, IngestionQueue.QUEUE_FILE_NAME);
+            String json = "[" + TestQueues.getTaskJson(job.getFullName(), 1) + "," +
+                                TestQueues.getTaskJson("otherJob", 1) + "]";
+            Files.write(queueFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+            queue = TestQueues.restore(queueFile);
+            assertEquals(2, queue.getPendingCount());
+
+            listener = new WatchrItemListener() {
+                @Override
+                IngestionQueue getQueue() {
+                    return queue;
+                }
+            };
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOnDeleted_DropsJobState() {
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        DatabaseCache.markLoaded(job, 0, 0);
+        assertFalse(DatabaseCache.needsLoad(job));
+
+        listener.onDeleted(job);
+
+        assertNotSame(writeLock, DatabaseWriteLock.forJob(job));
+        assertTrue(DatabaseCache.needsLoad(job));
+        assertEquals(1, queue.getPendingCount());
+        assertEquals("otherJob", queue.getPendingTasks().get(0).getJobFullName());
+    }
+
+    @Test
+    public void testOnLocationChanged_RenamesTasks() {
+        String oldFullName = job.getFullName();
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        DatabaseCache.markLoaded(job, 0, 0);
+
+        listener.onLocationChanged(job, oldFullName, "folder/" + oldFullName);
+
+        assertNotSame(writeLock, DatabaseWriteLock.forJob(job));
+        assertTrue(DatabaseCache.needsLoad(job));
+        assertEquals(2, queue.getPendingCount());
+        for(IngestionTask task : queue.getPendingTasks()) {
+            assertTrue(task.getJobFullName().equals("otherJob") ||
+                       task.getJobFullName().equals("folder/" + oldFullName));
+        }
+    }
+}
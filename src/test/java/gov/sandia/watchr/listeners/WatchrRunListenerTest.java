@@ -0,0 +1,55 @@
+package gov.sandia.watchr.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import gov.sandia.watchr.ingest.IngestionQueue;
+import gov.sandia.watchr.ingest.IngestionTask;
+import gov.sandia.watchr.ingest.TestQueues;
+import hudson.model.Job;
+import hudson.model.Run;
+
+public class WatchrRunListenerTest {
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testOnDeleted_RemovesOnlyThatBuild() {
+        try {
+            File jenkinsDir = Files.createTempDirectory(null).toFile();
+            File queueFile = new File(jenkinsDir, IngestionQueue.QUEUE_FILE_NAME);
+            String json = "[" + TestQueues.getTaskJson("job", 1) + "," + TestQueues.getTaskJson("job", 2) + "]";
+            Files.write(queueFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+            IngestionQueue queue = TestQueues.restore(queueFile);
+
+            WatchrRunListener listener = new WatchrRunListener() {
+                @Override
+                IngestionQueue getQueue() {
+                    return queue;
+                }
+            };
+
+            Job job = Mockito.mock(Job.class);
+            Mockito.when(job.getFullName()).thenReturn("job");
+            Run run = Mockito.mock(Run.class);
+            Mockito.when(run.getParent()).thenReturn(job);
+            Mockito.when(run.getNumber()).thenReturn(1);
+
+            listener.onDeleted(run);
+
+            assertEquals(1, queue.getPendingCount());
+            IngestionTask task = queue.getPendingTasks().get(0);
+            assertEquals("job", task.getJobFullName());
+            assertEquals(2, task.getBuildNumber());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.model.Job;
+
+public class DatabaseCacheTest {
+
+    private static int jobCount = 0;
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        // The cache outlives each test, so every test gets a job of its own.
+        job = TestJobs.create(new File(System.getProperty("java.io.tmpdir")), "CacheJob" + jobCount++);
+    }
+
+    @Test
+    public void testNeedsLoad_OnlyUntilLoaded() {
+        long misses = DatabaseCache.getMisses();
+        long hits = DatabaseCache.getHits();
+        assertTrue(DatabaseCache.needsLoad(job));
+        assertEquals(misses + 1, DatabaseCache.getMisses());
+
+        DatabaseCache.markLoaded(job, 100, 5);
+        assertFalse(DatabaseCache.needsLoad(job));
+        assertEquals(hits + 1, DatabaseCache.getHits());
+        assertTrue(DatabaseCache.isCurrent(job));
+    }
+
+    @Test
+    public void testRecordChange_KeepsLoadedCopyCurrent() {
+        DatabaseCache.markLoaded(job, 100, 5);
+        long generation = DatabaseCache.getGeneration(job);
+
+        DatabaseCache.recordChange(job);
+        assertEquals(generation + 1, DatabaseCache.getGeneration(job));
+        assertTrue(DatabaseCache.isCurrent(job));
+        assertFalse(DatabaseCache.needsLoad(job));
+    }
+
+    @Test
+    public void testInvalidate_ForcesReload() {
+        DatabaseCache.markLoaded(job, 100, 5);
+        long generation = DatabaseCache.getGeneration(job);
+
+        DatabaseCache.invalidate(job);
+        assertEquals(generation + 1, DatabaseCache.getGeneration(job));
+        assertFalse(DatabaseCache.isCurrent(job));
+        assertTrue(DatabaseCache.needsLoad(job));
+
+        // A change to a copy that is no longer trusted does not make it current.
+        DatabaseCache.recordChange(job);
+        assertFalse(DatabaseCache.isCurrent(job));
+    }
+
+    @Test
+    public void testMarkUnloaded_MovesGeneration() {
+        long estimatedBytes = DatabaseCache.getEstimatedBytes();
+        DatabaseCache.markLoaded(job, 100, 5);
+        long generation = DatabaseCache.getGeneration(job);
+        assertEquals(estimatedBytes + 100, DatabaseCache.getEstimatedBytes());
+        assertTrue(DatabaseCache.getIdleJobNames(0).contains(job.getFullName()));
+        assertTrue(DatabaseCache.getLeastRecentlyUsedJobNames().contains(job.getFullName()));
+
+        DatabaseCache.markUnloaded(job);
+        assertEquals(generation + 1, DatabaseCache.getGeneration(job));
+        assertEquals(estimatedBytes, DatabaseCache.getEstimatedBytes());
+        assertFalse(DatabaseCache.getIdleJobNames(0).contains(job.getFullName()));
+        assertFalse(DatabaseCache.getLeastRecentlyUsedJobNames().contains(job.getFullName()));
+        assertTrue(DatabaseCache.needsLoad(job));
+    }
+}
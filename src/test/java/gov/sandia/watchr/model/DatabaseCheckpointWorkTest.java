@@ -0,0 +1,56 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.model.Job;
+
+public class DatabaseCheckpointWorkTest {
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "CheckpointJob");
+            assertTrue(job.getRootDir().mkdirs());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseJournal.forget(job.getFullName());
+    }
+
+    @Test
+    public void testGetDueJournals_WaitsForInterval() {
+        try {
+            DatabaseJournal journal = DatabaseJournal.forJob(job);
+            journal.appendDelete("plot", "category");
+            long oldestRecordTime = journal.getOldestRecordTime();
+
+            assertFalse(DatabaseCheckpointWork.getDueJournals(60000, oldestRecordTime + 59999).contains(journal));
+            assertTrue(DatabaseCheckpointWork.getDueJournals(60000, oldestRecordTime + 60000).contains(journal));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetDueJournals_SkipsEmptyJournals() {
+        DatabaseJournal journal = DatabaseJournal.forJob(job);
+        assertFalse(DatabaseCheckpointWork.getDueJournals(0, System.currentTimeMillis()).contains(journal));
+    }
+}
@@ -0,0 +1,76 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.model.Job;
+
+public class DatabaseEvictionWorkTest {
+
+    private static int jobCount = 0;
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        try {
+            // The cache outlives each test, so every test gets a job of its own.
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "EvictionJob" + jobCount++);
+            job.getRootDir().mkdirs();
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnloadIdleDatabases_UnloadsIdleDatabase() {
+        DatabaseCache.markLoaded(job, 0, 0);
+        assertEquals(1, DatabaseEvictionWork.unloadIdleDatabases(0, this::lookup));
+        assertFalse(DatabaseCache.isCurrent(job));
+        assertTrue(DatabaseCache.needsLoad(job));
+    }
+
+    @Test
+    public void testUnloadIdleDatabases_KeepsRecentlyUsedDatabase() {
+        DatabaseCache.markLoaded(job, 0, 0);
+        assertEquals(0, DatabaseEvictionWork.unloadIdleDatabases(60 * 60 * 1000L, this::lookup));
+        assertTrue(DatabaseCache.isCurrent(job));
+    }
+
+    @Test
+    public void testUnloadIdleDatabases_KeepsUnsavedChanges() {
+        DatabaseCache.markLoaded(job, 0, 0);
+        DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+        writeLock.lock();
+        try {
+            writeLock.recordChange();
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Unloading would lose the change, since it has not been saved.
+        assertEquals(0, DatabaseEvictionWork.unloadIdleDatabases(0, this::lookup));
+        assertTrue(DatabaseCache.isCurrent(job));
+    }
+
+    @Test
+    public void testUnloadIdleDatabases_SkipsDeletedJobs() {
+        DatabaseCache.markLoaded(job, 0, 0);
+        assertEquals(0, DatabaseEvictionWork.unloadIdleDatabases(0, jobFullName -> null));
+        assertTrue(DatabaseCache.isCurrent(job));
+    }
+
+    private Job<?,?> lookup(String jobFullName) {
+        return jobFullName.equals(job.getFullName()) ? job : null;
+    }
+}
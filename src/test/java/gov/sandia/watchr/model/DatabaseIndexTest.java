@@ -0,0 +1,126 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.WatchrJenkinsApp;
+import hudson.model.Job;
+
+public class DatabaseIndexTest {
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "IndexJob");
+            assertTrue(job.getRootDir().mkdirs());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseIndex.forget(job.getFullName());
+        DatabaseWriteLock.forget(job.getFullName());
+        DatabaseCache.forget(job.getFullName());
+    }
+
+    @Test
+    public void testUpdate_KeepsNewerIndex() {
+        DatabaseIndex newerIndex = createIndex(5, 10, "cpu", "memory");
+        DatabaseIndex olderIndex = createIndex(3, 8, "cpu");
+        DatabaseIndex.update(job, newerIndex);
+        DatabaseIndex.update(job, olderIndex);
+        assertEquals(10, DatabaseIndex.forJob(job).getPlotCount());
+
+        // The saved index is the newer one too.
+        DatabaseIndex.forget(job.getFullName());
+        assertEquals(10, DatabaseIndex.forJob(job).getPlotCount());
+    }
+
+    @Test
+    public void testForJob_ReadsSavedIndex() {
+        DatabaseIndex.update(job, createIndex(2, 7, "cpu", "memory"));
+        assertTrue(new File(job.getRootDir(), DatabaseIndex.INDEX_FILE_NAME).exists());
+
+        DatabaseIndex.forget(job.getFullName());
+        DatabaseIndex savedIndex = DatabaseIndex.forJob(job);
+        assertEquals(7, savedIndex.getPlotCount());
+        assertEquals(1, savedIndex.getFailedPlotCount());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("cpu", "memory")), savedIndex.getCategories());
+    }
+
+    @Test
+    public void testRecord_ReplacesSavedIndex() {
+        DatabaseIndex.update(job, createIndex(9, 7, "cpu"));
+        DatabaseIndex.forget(job.getFullName());
+        DatabaseIndex.forJob(job);
+
+        // Generations restart with Jenkins, so anything indexed now is newer than the saved index.
+        assertTrue(DatabaseIndex.record(job, createIndex(0, 4, "cpu")));
+        assertEquals(4, DatabaseIndex.forJob(job).getPlotCount());
+        assertFalse(DatabaseIndex.record(job, createIndex(-1, 2, "cpu")));
+    }
+
+    @Test
+    public void testRead_IgnoresIndexOlderThanDatabase() {
+        try {
+            DatabaseIndex.update(job, createIndex(2, 7, "cpu"));
+            assertEquals(7, DatabaseIndex.read(job).getPlotCount());
+
+            // The database is saved, and Jenkins stops before the index is.
+            writeDatabaseFile("plots.json", "{}");
+            assertNull(DatabaseIndex.read(job));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMarkSaved_KeepsCurrentIndexValid() {
+        try {
+            DatabaseCache.recordChange(job);
+            DatabaseIndex.update(job, createIndex(DatabaseCache.getGeneration(job), 7, "cpu"));
+
+            // A checkpoint saves the journaled change the index already reflects.
+            writeDatabaseFile("plots.json", "{}");
+            DatabaseIndex.markSaved(job);
+            assertEquals(7, DatabaseIndex.read(job).getPlotCount());
+
+            // An index taken before the latest change is not saved again.
+            DatabaseCache.recordChange(job);
+            writeDatabaseFile("plots.json", "{\"plots\":[]}");
+            DatabaseIndex.markSaved(job);
+            assertNull(DatabaseIndex.read(job));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private void writeDatabaseFile(String name, String contents) throws IOException {
+        File dbDir = WatchrJenkinsApp.getDatabaseDir(job);
+        dbDir.mkdirs();
+        Files.write(new File(dbDir, name).toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DatabaseIndex createIndex(long generation, int plotCount, String... categories) {
+        return new DatabaseIndex(new LinkedHashSet<>(Arrays.asList(categories)), plotCount, 1, generation);
+    }
+}
@@ -0,0 +1,143 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.impl.ReportTreeSnapshot;
+import hudson.FilePath;
+import hudson.model.Job;
+
+public class DatabaseJournalTest {
+
+    private Job<?,?> job;
+    private File logFile;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "JournalJob");
+            File journalDir = new File(job.getRootDir(), DatabaseJournal.JOURNAL_DIR);
+            assertTrue(journalDir.mkdirs());
+            logFile = new File(journalDir, "journal.log");
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseJournal.forget(job.getFullName());
+    }
+
+    @Test
+    public void testAppendDelete_SurvivesReload() {
+        try {
+            DatabaseJournal journal = DatabaseJournal.forJob(job);
+            journal.appendDelete("plot1", "category");
+            journal.appendDelete("plot2", "category");
+            assertEquals(2, journal.getPendingRecordCount());
+
+            DatabaseJournal.forget(job.getFullName());
+            DatabaseJournal reloaded = DatabaseJournal.forJob(job);
+            assertEquals(2, reloaded.getPendingRecordCount());
+            assertTrue(reloaded.getOldestRecordTime() > 0);
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoad_DiscardsTornTail() {
+        try {
+            String record1 = getRecordLine("plot1");
+            String record2 = getRecordLine("plot2");
+            String torn = getRecordLine("plot3").substring(0, 20);
+            Files.write(logFile.toPath(), (record1 + record2 + torn).getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(2, DatabaseJournal.forJob(job).getPendingRecordCount());
+            // The damaged tail is dropped, so new records are not appended after it.
+            List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoad_StopsAtBadChecksum() {
+        try {
+            String record1 = getRecordLine("plot1");
+            String corrupt = getRecordLine("plot2").replace("plot2", "plotX");
+            String record3 = getRecordLine("plot3");
+            Files.write(logFile.toPath(), (record1 + corrupt + record3).getBytes(StandardCharsets.UTF_8));
+
+            // Nothing after a damaged record can be trusted to follow it.
+            assertEquals(1, DatabaseJournal.forJob(job).getPendingRecordCount());
+            List<String> lines = Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAppendIngest_KeepsOnlyIngestedFiles() {
+        try {
+            File copiedRoot = Files.createTempDirectory(null).toFile();
+            File reportsDir = new File(copiedRoot, "reports");
+            assertTrue(reportsDir.mkdirs());
+            File ingested = new File(reportsDir, "a.xml");
+            File skipped = new File(reportsDir, "b.xml");
+            Files.write(ingested.toPath(), "a".getBytes(StandardCharsets.UTF_8));
+            Files.write(skipped.toPath(), "b".getBytes(StandardCharsets.UTF_8));
+
+            String rootPath = ReportTreeSnapshot.normalize(reportsDir.getAbsolutePath());
+            String ingestedPath = ReportTreeSnapshot.normalize(ingested.getAbsolutePath());
+            ReportTreeSnapshot snapshot = new ReportTreeSnapshot(rootPath);
+            ReportTreeSnapshot.Entry root = new ReportTreeSnapshot.Entry(rootPath, "file:" + rootPath + "/", true, 0, 0, null);
+            snapshot.addEntry(root);
+            snapshot.addEntry(new ReportTreeSnapshot.Entry(ingestedPath, "file:" + ingestedPath, false, 1, 1, "hashA"));
+            root.addChildUriPath("file:" + ingestedPath);
+
+            DatabaseJournal journal = DatabaseJournal.forJob(job);
+            journal.appendIngest(new FilePath(copiedRoot), new FilePath(reportsDir), snapshot, "config");
+            assertEquals(1, journal.getPendingRecordCount());
+
+            // Replaying the record must not read files that were skipped the first time.
+            File journaledReports = new File(new File(job.getRootDir(), DatabaseJournal.JOURNAL_DIR), "reports-0/reports");
+            assertTrue(new File(journaledReports, "a.xml").isFile());
+            assertFalse(new File(journaledReports, "b.xml").exists());
+            assertFalse(copiedRoot.exists());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testForJob_KeyedByFullName() {
+        DatabaseJournal journal = DatabaseJournal.forJob(job);
+        assertSame(journal, DatabaseJournal.forJob(TestJobs.create(job.getRootDir().getParentFile(), "JournalJob")));
+    }
+
+    private String getRecordLine(String plotName) {
+        String json = "{\"operation\":\"DELETE\",\"time\":1,\"plotName\":\"" + plotName + "\",\"category\":\"category\"}";
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue()) + " " + json + "\n";
+    }
+}
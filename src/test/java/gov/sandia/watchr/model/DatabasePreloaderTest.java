@@ -0,0 +1,75 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Job;
+
+public class DatabasePreloaderTest {
+
+    private File jobsDir;
+    private FreeStyleProject loadedJob;
+
+    @Before
+    public void setup() {
+        try {
+            jobsDir = Files.createTempDirectory(null).toFile();
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(loadedJob != null) {
+            DatabaseCache.forget(loadedJob.getFullName());
+        }
+    }
+
+    @Test
+    public void testGetMostRecentlyChangedJobs() {
+        try {
+            FreeStyleProject oldJob = createJobWithIndex("OldJob", 1000000L);
+            FreeStyleProject newJob = createJobWithIndex("NewJob", 3000000L);
+            FreeStyleProject middleJob = createJobWithIndex("MiddleJob", 2000000L);
+            FreeStyleProject noDatabaseJob = TestJobs.create(jobsDir, "NoDatabaseJob");
+
+            List<Job<?,?>> jobs = DatabasePreloader.getMostRecentlyChangedJobs(
+                Arrays.asList(oldJob, noDatabaseJob, newJob, middleJob), 2);
+            assertEquals(Arrays.asList(newJob, middleJob), jobs);
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPreload_StopsAtMemoryBudget() {
+        loadedJob = TestJobs.create(jobsDir, "LoadedJob");
+        DatabaseCache.markLoaded(loadedJob, 1000, 0);
+
+        FreeStyleProject job = TestJobs.create(jobsDir, "PreloadJob");
+        DatabasePreloader.preload(job, 500);
+        assertTrue(DatabaseCache.needsLoad(job));
+    }
+
+    private FreeStyleProject createJobWithIndex(String name, long changedTime) throws IOException {
+        FreeStyleProject job = TestJobs.create(jobsDir, name);
+        assertTrue(job.getRootDir().mkdirs());
+        File indexFile = new File(job.getRootDir(), DatabaseIndex.INDEX_FILE_NAME);
+        Files.write(indexFile.toPath(), "{}".getBytes());
+        assertTrue(indexFile.setLastModified(changedTime));
+        return job;
+    }
+}
@@ -0,0 +1,204 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.impl.WatchrJenkinsLogger;
+import gov.sandia.watchr.log.ILogger;
+import hudson.model.Job;
+
+public class DatabaseWriteLockTest {
+
+    private Job<?,?> job;
+    private ILogger logger;
+    private AtomicInteger saves;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "WriteLockJob");
+            logger = new WatchrJenkinsLogger(new File(jobsDir, "log"));
+            saves = new AtomicInteger();
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCommit_OneSaveCoversEveryRecordedChange() {
+        try {
+            DatabaseWriteLock writeLock = new CountingWriteLock();
+            writeLock.lock();
+            long ticket1;
+            long ticket2;
+            try {
+                ticket1 = writeLock.recordChange();
+                ticket2 = writeLock.recordChange();
+            } finally {
+                writeLock.unlock();
+            }
+            assertTrue(writeLock.hasUnsavedChanges());
+
+            writeLock.commit(ticket1, logger);
+            writeLock.commit(ticket2, logger);
+            assertEquals(1, saves.get());
+            assertFalse(writeLock.hasUnsavedChanges());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCommit_WaitsForSaveInProgress() {
+        try {
+            CountDownLatch saveStarted = new CountDownLatch(1);
+            CountDownLatch finishSave = new CountDownLatch(1);
+            DatabaseWriteLock writeLock = new CountingWriteLock() {
+                @Override
+                void saveDatabase(ILogger logger) {
+                    super.saveDatabase(logger);
+                    saveStarted.countDown();
+                    try {
+                        finishSave.await();
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            writeLock.lock();
+            long ticket1;
+            long ticket2;
+            try {
+                ticket1 = writeLock.recordChange();
+                ticket2 = writeLock.recordChange();
+            } finally {
+                writeLock.unlock();
+            }
+
+            Thread saver = new Thread(() -> {
+                try {
+                    writeLock.commit(ticket1, logger);
+                } catch(IOException e) {
+                    fail(e.getMessage());
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            saver.start();
+            assertTrue(saveStarted.await(10, TimeUnit.SECONDS));
+
+            // The save in progress already covers the second change.
+            finishSave.countDown();
+            writeLock.commit(ticket2, logger);
+            saver.join();
+            assertEquals(1, saves.get());
+            assertFalse(writeLock.hasUnsavedChanges());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCommit_FailedSaveLeavesChangesUnsaved() {
+        try {
+            AtomicInteger failures = new AtomicInteger(1);
+            DatabaseWriteLock writeLock = new CountingWriteLock() {
+                @Override
+                void saveDatabase(ILogger logger) {
+                    if(failures.getAndDecrement() > 0) {
+                        throw new IllegalStateException("Disk full");
+                    }
+                    super.saveDatabase(logger);
+                }
+            };
+            writeLock.lock();
+            long ticket;
+            try {
+                ticket = writeLock.recordChange();
+            } finally {
+                writeLock.unlock();
+            }
+
+            try {
+                writeLock.commit(ticket, logger);
+                fail("The failed save was not reported.");
+            } catch(IllegalStateException e) {
+                assertTrue(writeLock.hasUnsavedChanges());
+            }
+
+            writeLock.commit(ticket, logger);
+            assertEquals(1, saves.get());
+            assertFalse(writeLock.hasUnsavedChanges());
+        } catch(IOException | InterruptedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCommit_ForgottenLockFailsWithoutSaving() {
+        try {
+            DatabaseWriteLock writeLock = DatabaseWriteLock.forJob(job);
+            writeLock.lock();
+            long ticket;
+            try {
+                ticket = writeLock.recordChange();
+            } finally {
+                writeLock.unlock();
+            }
+
+            assertSame(writeLock, DatabaseWriteLock.forget(job.getFullName()));
+            assertNull(DatabaseWriteLock.forget(job.getFullName()));
+            // The dropped database is not saved, and the change is not reported as saved.
+            try {
+                writeLock.commit(ticket, logger);
+                fail("A change to a dropped database was reported as saved.");
+            } catch(IOException e) {
+                assertTrue(writeLock.hasUnsavedChanges());
+            }
+            assertNotSame(writeLock, DatabaseWriteLock.forJob(job));
+        } catch(InterruptedException e) {
+            fail(e.getMessage());
+        } finally {
+            DatabaseWriteLock.forget(job.getFullName());
+        }
+    }
+
+    @Test
+    public void testRecordChange_RequiresLock() {
+        DatabaseWriteLock writeLock = new CountingWriteLock();
+        try {
+            writeLock.recordChange();
+            fail("A change was recorded without holding the lock.");
+        } catch(IllegalStateException e) {
+            assertFalse(writeLock.hasUnsavedChanges());
+        }
+    }
+
+    private class CountingWriteLock extends DatabaseWriteLock {
+
+        CountingWriteLock() {
+            super(job);
+        }
+
+        @Override
+        void saveDatabase(ILogger logger) {
+            saves.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+import org.junit.Test;
+
+import gov.sandia.watchr.config.GraphDisplayConfig.GraphDisplaySort;
+
+public class GraphViewStateTest {
+
+    @Test
+    public void testToQueryString() throws UnsupportedEncodingException {
+        GraphViewState state = new GraphViewState("root/a b", "cpu", 2, 30, 500, 400, 3, 4, GraphDisplaySort.ASCENDING);
+        assertEquals(
+            "?path=root%2Fa+b&page=2&category=cpu&timeScale=30&graphWidth=500&graphHeight=400&graphsPerRow=3&roundTo=4&sortAscending=true",
+            state.toQueryString());
+    }
+
+    @Test
+    public void testToSettingsQueryString_Descending() throws UnsupportedEncodingException {
+        GraphViewState state = new GraphViewState("root", "", 1, 30, 500, 500, 3, 3, GraphDisplaySort.DESCENDING);
+        assertEquals(
+            "category=&timeScale=30&graphWidth=500&graphHeight=500&graphsPerRow=3&roundTo=3",
+            state.toSettingsQueryString());
+    }
+
+    @Test
+    public void testToSettingsParameterMap() throws UnsupportedEncodingException {
+        GraphViewState state = new GraphViewState("root", "a b", 1, 30, 500, 400, 3, 4, GraphDisplaySort.ASCENDING);
+        Map<String,String> params = state.toSettingsParameterMap();
+        assertEquals("a+b", params.get(JenkinsConfigContext.PARAM_CATEGORY));
+        assertEquals("400", params.get(JenkinsConfigContext.PARAM_GRAPH_HEIGHT));
+        assertEquals("true", params.get(JenkinsConfigContext.PARAM_SORT_ASCENDING));
+        assertEquals(7, params.size());
+    }
+
+    @Test
+    public void testWithLocation() {
+        GraphViewState state = new GraphViewState("root", "cpu", 1, 30, 500, 500, 3, 3, GraphDisplaySort.ASCENDING);
+        GraphViewState moved = state.withLocation("root/child", 3);
+        assertEquals("root/child", moved.getPath());
+        assertEquals(3, moved.getPage());
+        assertEquals("cpu", moved.getCategory());
+        assertEquals("root", state.getPath());
+        assertEquals(1, state.getPage());
+    }
+
+    @Test
+    public void testEquals() {
+        GraphViewState state1 = new GraphViewState("root", "cpu", 1, 30, 500, 500, 3, 3, GraphDisplaySort.ASCENDING);
+        GraphViewState state2 = new GraphViewState("root", "cpu", 1, 30, 500, 500, 3, 3, GraphDisplaySort.ASCENDING);
+        assertEquals(state1, state2);
+        assertEquals(state1.hashCode(), state2.hashCode());
+        assertNotEquals(state1, state1.withLocation("root", 2));
+    }
+}
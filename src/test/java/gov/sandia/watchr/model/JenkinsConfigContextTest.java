@@ -31,7 +31,7 @@ public class JenkinsConfigContextTest {
                 @Override public void save() throws IOException { }
                 @Override public String getDisplayName() { return null; }
                 @Override public String getFullDisplayName() { return null; }
-                @Override public String getFullName() { return null; }
+                @Override public String getFullName() { return ""; }
                 @Override public Item getItem(String arg0) throws AccessDeniedException { return null; }
                 @Override public Collection<Item> getItems() { return null; }
                 @Override public File getRootDirFor(Item arg0) { return null; }
@@ -0,0 +1,127 @@
+package gov.sandia.watchr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.sandia.watchr.impl.ReportTreeSnapshot;
+import gov.sandia.watchr.impl.WatchrJenkinsFileReader;
+import gov.sandia.watchr.impl.WatchrJenkinsLogger;
+import hudson.FilePath;
+import hudson.model.Job;
+
+public class ReportManifestTest {
+
+    private static final String ROOT = "/reports";
+
+    private Job<?,?> job;
+
+    @Before
+    public void setup() {
+        try {
+            File jobsDir = Files.createTempDirectory(null).toFile();
+            job = TestJobs.create(jobsDir, "ManifestJob");
+            job.getRootDir().mkdirs();
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRemoveIngestedFiles_SkipsIngestedContents() {
+        try {
+            ReportManifest manifest = ReportManifest.load(job);
+            manifest.removeIngestedFiles(createSnapshot(), "config1");
+            manifest.recordIngestedFiles(createSnapshot("a.xml", "hashA", "b.xml", "hashB"), "config1");
+            manifest.save();
+
+            // a.xml is unchanged, b.xml has changed, and c.xml is a copy of a.xml.
+            ReportTreeSnapshot snapshot = createSnapshot("a.xml", "hashA", "b.xml", "hashB2", "c.xml", "hashA");
+            ReportManifest reloaded = ReportManifest.load(job);
+            assertEquals(2, reloaded.size());
+            assertEquals(2, reloaded.removeIngestedFiles(snapshot, "config1"));
+            assertNull(snapshot.getEntry(ROOT + "/a.xml"));
+            assertNull(snapshot.getEntry(ROOT + "/c.xml"));
+            assertNotNull(snapshot.getEntry(ROOT + "/b.xml"));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRemoveIngestedFiles_ChangedConfigReingestsEverything() {
+        try {
+            ReportManifest manifest = ReportManifest.load(job);
+            manifest.removeIngestedFiles(createSnapshot(), "config1");
+            manifest.recordIngestedFiles(createSnapshot("a.xml", "hashA"), "config1");
+            manifest.save();
+
+            ReportTreeSnapshot snapshot = createSnapshot("a.xml", "hashA");
+            ReportManifest reloaded = ReportManifest.load(job);
+            assertEquals(0, reloaded.removeIngestedFiles(snapshot, "config2"));
+            assertEquals(0, reloaded.size());
+            assertNotNull(snapshot.getEntry(ROOT + "/a.xml"));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoad_CorruptManifestReingestsEverything() {
+        try {
+            File file = new File(job.getRootDir(), ReportManifest.MANIFEST_FILE_NAME);
+            Files.write(file.toPath(), "{\"entries\":".getBytes(StandardCharsets.UTF_8));
+
+            ReportManifest manifest = ReportManifest.load(job);
+            assertEquals(0, manifest.size());
+            assertEquals(0, manifest.removeIngestedFiles(createSnapshot("a.xml", "hashA"), "config1"));
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRecordIngestedFiles_SkipsUnreadableFiles() {
+        try {
+            File reportsDir = new File(job.getRootDir(), "reports");
+            WatchrJenkinsFileReader fileReader = new WatchrJenkinsFileReader(
+                new FilePath(reportsDir), new WatchrJenkinsLogger(new File(job.getRootDir(), "log")));
+            assertEquals("", fileReader.readFromFile("missing.xml"));
+
+            ReportTreeSnapshot snapshot = createSnapshotAt(reportsDir.getPath(), "missing.xml", "hashA", "b.xml", "hashB");
+            assertEquals(1, snapshot.removeFiles(fileReader.getUnreadablePaths()));
+
+            ReportManifest manifest = ReportManifest.load(job);
+            manifest.removeIngestedFiles(createSnapshot(), "config1");
+            manifest.recordIngestedFiles(snapshot, "config1");
+            assertEquals(1, manifest.size());
+        } catch(IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    private ReportTreeSnapshot createSnapshot(String... namesAndHashes) {
+        return createSnapshotAt(ROOT, namesAndHashes);
+    }
+
+    private ReportTreeSnapshot createSnapshotAt(String rootPath, String... namesAndHashes) {
+        ReportTreeSnapshot snapshot = new ReportTreeSnapshot(rootPath);
+        ReportTreeSnapshot.Entry root = new ReportTreeSnapshot.Entry(rootPath, "file:" + rootPath + "/", true, 0, 0, null);
+        snapshot.addEntry(root);
+        for(int i = 0; i < namesAndHashes.length; i += 2) {
+            String path = rootPath + "/" + namesAndHashes[i];
+            snapshot.addEntry(new ReportTreeSnapshot.Entry(path, "file:" + path, false, 10, 1, namesAndHashes[i + 1]));
+            root.addChildUriPath("file:" + path);
+        }
+        return snapshot;
+    }
+}
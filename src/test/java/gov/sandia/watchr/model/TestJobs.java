@@ -0,0 +1,37 @@
+package gov.sandia.watchr.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.acegisecurity.AccessDeniedException;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+
+/**
+ * Creates jobs whose directories live under a temporary directory, for tests
+ * of classes that keep state in a job's directory.
+ */
+public final class TestJobs {
+
+    private TestJobs() {}
+
+    public static FreeStyleProject create(File parentDir, String name) {
+        ItemGroup<Item> parent = new ItemGroup<Item>() {
+            @Override public File getRootDir() { return parentDir; }
+            @Override public void save() throws IOException { }
+            @Override public String getDisplayName() { return null; }
+            @Override public String getFullDisplayName() { return null; }
+            @Override public String getFullName() { return ""; }
+            @Override public Item getItem(String arg0) throws AccessDeniedException { return null; }
+            @Override public Collection<Item> getItems() { return null; }
+            @Override public File getRootDirFor(Item item) { return new File(parentDir, item.getName()); }
+            @Override public String getUrl() { return null; }
+            @Override public String getUrlChildPrefix() { return null; }
+            @Override public void onDeleted(Item arg0) throws IOException { }
+        };
+        return new FreeStyleProject(parent, name);
+    }
+}
@@ -0,0 +1,45 @@
+package gov.sandia.watchr.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HttpHeaderUtilTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    @Test
+    public void testMatchesETag_ComparesWholeTags() {
+        assertTrue(HttpHeaderUtil.matchesETag("\"abc\"", ETAG));
+        assertTrue(HttpHeaderUtil.matchesETag("\"xyz\", \"abc\"", ETAG));
+        assertTrue(HttpHeaderUtil.matchesETag("W/\"abc\"", ETAG));
+        assertFalse(HttpHeaderUtil.matchesETag("\"abc-gzip\"", ETAG));
+        assertFalse(HttpHeaderUtil.matchesETag("\"xabc\"", ETAG));
+        assertFalse(HttpHeaderUtil.matchesETag(null, ETAG));
+    }
+
+    @Test
+    public void testMatchesETag_Wildcard() {
+        assertTrue(HttpHeaderUtil.matchesETag("*", ETAG));
+        assertTrue(HttpHeaderUtil.matchesETag(" * ", ETAG));
+    }
+
+    @Test
+    public void testAcceptsGzip_Qualities() {
+        assertTrue(HttpHeaderUtil.acceptsGzip("gzip, deflate"));
+        assertTrue(HttpHeaderUtil.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(HttpHeaderUtil.acceptsGzip("x-gzip"));
+        assertFalse(HttpHeaderUtil.acceptsGzip("gzip;q=0"));
+        assertFalse(HttpHeaderUtil.acceptsGzip("gzip; q=0.0, identity"));
+        assertFalse(HttpHeaderUtil.acceptsGzip("identity"));
+        assertFalse(HttpHeaderUtil.acceptsGzip(null));
+    }
+
+    @Test
+    public void testAcceptsGzip_Wildcard() {
+        assertTrue(HttpHeaderUtil.acceptsGzip("*"));
+        assertFalse(HttpHeaderUtil.acceptsGzip("*;q=0"));
+        assertFalse(HttpHeaderUtil.acceptsGzip("*, gzip;q=0"));
+    }
+}